@@ -0,0 +1,101 @@
+package museumhell.bench;
+
+import com.jme3.anim.AnimClip;
+import com.jme3.anim.AnimComposer;
+import com.jme3.anim.AnimTrack;
+import com.jme3.anim.TransformTrack;
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.AssetLocator;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.material.Material;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import museumhell.engine.world.levelgen.MuseumLayout;
+import museumhell.engine.world.levelgen.generator.MuseumGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Piezas comunes de los benchmarks: un AssetManager sin ventana, el museo del juego (150 × 125, 3 plantas,
+ * semilla fija) y un PhysicsSpace con los mismos límites que MuseumHell.
+ * <p>
+ * Los .glb se sustituyen por modelos de una caja (el del guardia con un AnimComposer y su clip de andar), así
+ * que los benchmarks no dependen de los modelos ni de jme3-plugins y miden el código del juego, no la carga
+ * de assets.
+ */
+public final class BenchWorld {
+    public static final long SEED = 42L;
+
+    private BenchWorld() {
+    }
+
+    public static AssetManager assetManager() {
+        AssetManager am = new DesktopAssetManager(true);
+        am.registerLocator("", StubLocator.class);
+        am.registerLoader(StubModelLoader.class, "glb");
+        return am;
+    }
+
+    public static MuseumLayout layout() {
+        return MuseumGenerator.generate(150, 125, 3, SEED);
+    }
+
+    public static PhysicsSpace physicsSpace() {
+        return new PhysicsSpace(new Vector3f(-150f, -10f, -150f), new Vector3f(150f, 50f, 150f), PhysicsSpace.BroadphaseType.DBVT);
+    }
+
+    /**
+     * Resuelve cualquier .glb (exista o no en el classpath) con un flujo vacío para {@link StubModelLoader}.
+     */
+    public static final class StubLocator implements AssetLocator {
+        @Override
+        public void setRootPath(String rootPath) {
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")   // AssetLocator declara la clave sin tipo
+        public AssetInfo locate(AssetManager manager, AssetKey key) {
+            if (!key.getName().endsWith(".glb")) return null;
+            return new AssetInfo(manager, key) {
+                @Override
+                public InputStream openStream() {
+                    return new ByteArrayInputStream(new byte[0]);
+                }
+            };
+        }
+    }
+
+    /**
+     * Modelo de una caja con la base en y = 0; el del guardia lleva además el clip "ArmatureAction".
+     */
+    public static final class StubModelLoader implements com.jme3.asset.AssetLoader {
+        @Override
+        public Object load(AssetInfo info) {
+            String name = info.getKey().getName();
+            boolean monster = name.contains("Monster");
+            Node model = new Node(name);
+            Geometry g = new Geometry("Mesh", monster ? new Box(0.4f, 0.9f, 0.4f) : new Box(1f, 1f, 1f));
+            g.setMaterial(new Material(info.getManager(), "Common/MatDefs/Misc/Unshaded.j3md"));
+            g.setLocalTranslation(0f, monster ? 0.9f : 1f, 0f);
+            model.attachChild(g);
+            if (monster) {
+                TransformTrack walk = new TransformTrack(g, new float[]{0f, 0.5f, 1f},
+                        new Vector3f[]{new Vector3f(0f, 0.9f, 0f), new Vector3f(0f, 1f, 0f), new Vector3f(0f, 0.9f, 0f)},
+                        new Quaternion[]{new Quaternion(), new Quaternion(), new Quaternion()}, null);
+                AnimClip clip = new AnimClip("ArmatureAction");
+                clip.setTracks(new AnimTrack<?>[]{walk});
+                AnimComposer composer = new AnimComposer();
+                composer.addAnimClip(clip);
+                model.addControl(composer);
+            }
+            return model;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package museumhell.bench;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.CapsuleCollisionShape;
+import com.jme3.bullet.objects.PhysicsCharacter;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import museumhell.engine.world.levelgen.MuseumLayout;
+import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.world.WorldBuilder;
+import museumhell.utils.GeoUtil;
+import museumhell.utils.media.AssetLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Colisión del mundo en modo BOX frente a MESH ({@link GeoUtil#COLLISION_MODE}):
+ * <ul>
+ *   <li>{@link #startup}: construir el museo y registrar sus cuerpos en un PhysicsSpace nuevo,</li>
+ *   <li>{@link #step}: un paso de física a 60 Hz con {@code CHARACTERS} cápsulas andando por la planta 0.</li>
+ * </ul>
+ * El modo se lee una vez al cargar GeoUtil, así que cada valor de {@code mode} necesita su propio fork
+ * (no vale {@code -f 0}).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CollisionBench {
+    private static final int CHARACTERS = 16;
+    private static final float TPF = 1f / 60f;
+
+    @Param({"box", "mesh"})
+    public String mode;
+
+    private AssetManager am;
+    private AssetLoader assets;
+    private MuseumLayout layout;
+
+    private PhysicsSpace space;
+    private final List<PhysicsCharacter> walkers = new ArrayList<>();
+    private final List<Vector3f> dirs = new ArrayList<>();
+    private int steps;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        System.setProperty("museumhell.collision", mode);
+        if (!GeoUtil.COLLISION_MODE.name().equalsIgnoreCase(mode)) {
+            throw new IllegalStateException("GeoUtil ya estaba cargado en modo " + GeoUtil.COLLISION_MODE + ": hace falta un fork por modo");
+        }
+        am = BenchWorld.assetManager();
+        assets = new AssetLoader(am);
+        layout = BenchWorld.layout();
+
+        space = buildAndRegister();
+        Random rnd = new Random(BenchWorld.SEED);
+        List<Room> rooms = layout.floors().get(0).rooms();
+        CapsuleCollisionShape capsule = new CapsuleCollisionShape(0.4f, 1.0f);
+        for (int i = 0; i < CHARACTERS; i++) {
+            Room r = rooms.get(i % rooms.size());
+            PhysicsCharacter c = new PhysicsCharacter(capsule, 0.3f);
+            c.setPhysicsLocation(r.center3f(2f));
+            float a = rnd.nextFloat() * FastMath.TWO_PI;
+            Vector3f dir = new Vector3f(FastMath.cos(a), 0f, FastMath.sin(a)).multLocal(0.08f);
+            c.setWalkDirection(dir);
+            space.add(c);
+            walkers.add(c);
+            dirs.add(dir);
+        }
+    }
+
+    private PhysicsSpace buildAndRegister() {
+        WorldBuilder world = new WorldBuilder(am, new Node("Root"), assets);
+        world.build(layout);
+        PhysicsSpace s = BenchWorld.physicsSpace();
+        world.registerPhysics(s);
+        return s;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 8)
+    public PhysicsSpace startup() {
+        return buildAndRegister();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void step() {
+        // cada 4 s cambian de sentido, para que sigan rozando muros y no se queden quietos en una esquina
+        if (++steps % 240 == 0) {
+            for (int i = 0; i < walkers.size(); i++) walkers.get(i).setWalkDirection(dirs.get(i).negateLocal());
+        }
+        space.update(TPF);
+    }
+}
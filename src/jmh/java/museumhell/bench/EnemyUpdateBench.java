@@ -0,0 +1,76 @@
+package museumhell.bench;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.scene.Node;
+import museumhell.engine.world.levelgen.MuseumLayout;
+import museumhell.engine.world.world.WorldBuilder;
+import museumhell.game.ai.EnemySystem;
+import museumhell.game.player.PlayerController;
+import museumhell.utils.media.AssetLoader;
+import museumhell.utils.media.AudioLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static museumhell.utils.ConstantManager.ENEMY_SPAWN_INTERVAL;
+
+/**
+ * Coste de un frame de guardias frente a su número: el bucle de {@link EnemySystem#update} (con sus niveles de
+ * detalle), los controles de la escena (cápsulas y AnimComposer) y el paso de física, como en el juego.
+ * <p>
+ * El jugador se queda quieto en la primera sala de la planta 0. Los {@code guards} guardias aparecen con el
+ * ritmo normal del sistema ({@link EnemySystem#setCaps}, uno cada {@code ENEMY_SPAWN_INTERVAL} s) repartidos
+ * al azar entre las plantas, así que cada frame mezcla guardias completos, reducidos y gruesos.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnemyUpdateBench {
+    private static final float TPF = 1f / 60f;
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int guards;
+
+    private Node root;
+    private PhysicsSpace space;
+    private EnemySystem enemies;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        AssetManager am = BenchWorld.assetManager();
+        MuseumLayout layout = BenchWorld.layout();
+        root = new Node("Root");
+        WorldBuilder world = new WorldBuilder(am, root, new AssetLoader(am));
+        world.build(layout);
+        root.attachChild(world.getWorldNode());
+        space = BenchWorld.physicsSpace();
+        world.registerPhysics(space);
+
+        PlayerController player = new PlayerController(space, layout.floors().get(0).rooms().get(0).center3f(5f));
+        root.attachChild(player.getNode());
+        AudioLoader mute = new AudioLoader(am, root) {
+            @Override
+            public void loadAllSounds() {
+            }
+        };
+        enemies = new EnemySystem(new AssetLoader(am), space, root, layout, world, player, mute);
+        enemies.setCaps(guards, guards);
+
+        int frames = 0, limit = (int) ((guards + 1) * ENEMY_SPAWN_INTERVAL / TPF);
+        while (enemies.getActiveCount() < guards && frames++ < limit) frame();
+        if (enemies.getActiveCount() < guards) {
+            throw new IllegalStateException("solo aparecieron " + enemies.getActiveCount() + " de " + guards + " guardias");
+        }
+    }
+
+    @Benchmark
+    public void frame() {
+        enemies.update(TPF);
+        root.updateLogicalState(TPF);
+        space.update(TPF);
+    }
+}
@@ -0,0 +1,114 @@
+package museumhell.bench;
+
+import museumhell.engine.world.levelgen.MuseumLayout;
+import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.levelgen.generator.MuseumGenerator;
+import museumhell.utils.GeoUtil;
+import museumhell.utils.GeoUtil.Rect;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parches de suelo y techo: {@link GeoUtil#subtract} (rejilla comprimida y fusión voraz) frente al corte
+ * recursivo hueco a hueco que usaban antes los builders horizontales, sobre el mismo lote de salas.
+ * <ul>
+ *   <li>{@code stairs}: las salas que tocan un hueco de escalera en {@code LAYOUTS} museos del tamaño del juego,</li>
+ *   <li>{@code 4}, {@code 16}: salas de 40 × 40 con ese número de huecos de 4 × 6 al azar.</li>
+ * </ul>
+ * El tiempo es el de descomponer el lote entero; el número de piezas de cada método se imprime al preparar el
+ * lote, que es lo que acaba en geometrías y cuerpos.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PatchBench {
+    private static final int LAYOUTS = 50;
+    private static final int SYNTHETIC_ROOMS = 200;
+
+    @Param({"stairs", "4", "16"})
+    public String holes;
+
+    private final List<Rect> areas = new ArrayList<>();
+    private final List<List<Rect>> holeSets = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (holes.equals("stairs")) {
+            for (long seed = 0; seed < LAYOUTS; seed++) {
+                MuseumLayout m = MuseumGenerator.generate(150, 125, 3, seed);
+                for (int f = 0; f < m.floors().size(); f++) {
+                    List<Rect> floorHoles = m.stairs().holes().getOrDefault(f, List.of());
+                    for (Room r : m.floors().get(f).rooms()) {
+                        Rect area = new Rect(r.x(), r.x() + r.w(), r.z(), r.z() + r.h());
+                        if (!GeoUtil.intersectsAny(area, floorHoles)) continue;
+                        areas.add(area);
+                        holeSets.add(floorHoles);
+                    }
+                }
+            }
+        } else {
+            int n = Integer.parseInt(holes);
+            Random rnd = new Random(BenchWorld.SEED);
+            for (int i = 0; i < SYNTHETIC_ROOMS; i++) {
+                List<Rect> set = new ArrayList<>(n);
+                for (int k = 0; k < n; k++) {
+                    float x = rnd.nextInt(37), z = rnd.nextInt(35);
+                    set.add(new Rect(x, x + 4, z, z + 6));
+                }
+                areas.add(new Rect(0, 40, 0, 40));
+                holeSets.add(set);
+            }
+        }
+
+        long greedy = 0, split = 0;
+        for (int i = 0; i < areas.size(); i++) {
+            Rect a = areas.get(i);
+            greedy += GeoUtil.subtract(a, holeSets.get(i)).size();
+            split += recursiveSplit(a.x1(), a.z1(), a.x2() - a.x1(), a.z2() - a.z1(), holeSets.get(i), new ArrayList<>()).size();
+        }
+        System.out.printf("%n%d salas (%s): %d piezas con subtract, %d con el corte recursivo%n", areas.size(), holes, greedy, split);
+    }
+
+    @Benchmark
+    public void subtract(Blackhole bh) {
+        for (int i = 0; i < areas.size(); i++) bh.consume(GeoUtil.subtract(areas.get(i), holeSets.get(i)));
+    }
+
+    @Benchmark
+    public void recursiveSplit(Blackhole bh) {
+        for (int i = 0; i < areas.size(); i++) {
+            Rect a = areas.get(i);
+            bh.consume(recursiveSplit(a.x1(), a.z1(), a.x2() - a.x1(), a.z2() - a.z1(), holeSets.get(i), new ArrayList<>()));
+        }
+    }
+
+    /**
+     * El algoritmo anterior de _0HorizontalBuilder: con el primer hueco que toca la región, se parte en
+     * franja izquierda, derecha, delante y detrás, y se sigue con cada una.
+     */
+    private static List<Rect> recursiveSplit(float x, float z, float w, float d, List<Rect> holes, List<Rect> out) {
+        for (Rect h : holes) {
+            float hx1 = Math.max(h.x1(), x);
+            float hx2 = Math.min(h.x2(), x + w);
+            float hz1 = Math.max(h.z1(), z);
+            float hz2 = Math.min(h.z2(), z + d);
+            if (hx1 < hx2 && hz1 < hz2) {
+                if (hx1 > x) recursiveSplit(x, z, hx1 - x, d, holes, out);
+                if (hx2 < x + w) recursiveSplit(hx2, z, x + w - hx2, d, holes, out);
+                if (hz1 > z) recursiveSplit(hx1, z, hx2 - hx1, hz1 - z, holes, out);
+                if (hz2 < z + d) recursiveSplit(hx1, hz2, hx2 - hx1, z + d - hz2, holes, out);
+                return out;
+            }
+        }
+        out.add(new Rect(x, x + w, z, z + d));
+        return out;
+    }
+}
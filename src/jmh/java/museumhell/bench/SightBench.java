@@ -0,0 +1,135 @@
+package museumhell.bench;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.PhysicsRayTestResult;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import museumhell.engine.world.levelgen.MuseumLayout;
+import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.world.SightGrid;
+import museumhell.engine.world.world.WorldBuilder;
+import museumhell.utils.GeoUtil.Rect;
+import museumhell.utils.media.AssetLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static museumhell.utils.ConstantManager.PVS_RANGE;
+
+/**
+ * Línea de visión con la {@link SightGrid} frente a la consulta de antes: {@code PhysicsSpace.rayTest} y el
+ * recorrido de los resultados buscando el impacto más cercano que no sea el propio observador.
+ * <p>
+ * Los dos caminos ven lo mismo: las huellas de muro de la planta 0 (la rejilla sin puertas y, en la física, una
+ * caja estática por huella con la altura de la planta). Se miden {@code SEGMENTS} segmentos fijos entre puntos
+ * al azar de las salas, de hasta {@code PVS_RANGE} m, a la altura de los ojos; el tiempo es por consulta.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SightBench {
+    private static final int SEGMENTS = 1024;
+    private static final float EYE = 1.6f;
+
+    private SightGrid grid;
+    private PhysicsSpace space;
+    private PhysicsCollisionObject self;
+    private final Vector3f[] from = new Vector3f[SEGMENTS];
+    private final Vector3f[] to = new Vector3f[SEGMENTS];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        AssetManager am = BenchWorld.assetManager();
+        MuseumLayout layout = BenchWorld.layout();
+        WorldBuilder world = new WorldBuilder(am, new Node("Root"), new AssetLoader(am));
+        world.build(layout);
+
+        // 1) mismas huellas para los dos caminos
+        List<Rect> walls = world.getWallFootprints(0);
+        grid = new SightGrid(walls, List.of());
+        space = BenchWorld.physicsSpace();
+        float y0 = layout.yOf(0), h = layout.floorHeight();
+        for (Rect w : walls) {
+            BoxCollisionShape box = new BoxCollisionShape(new Vector3f((w.x2() - w.x1()) * 0.5f, h * 0.5f, (w.z2() - w.z1()) * 0.5f));
+            PhysicsRigidBody body = new PhysicsRigidBody(box, 0f);
+            body.setPhysicsLocation(new Vector3f((w.x1() + w.x2()) * 0.5f, y0 + h * 0.5f, (w.z1() + w.z2()) * 0.5f));
+            space.add(body);
+        }
+        // el observador: el scan lo salta, como hacía Enemy.canSee con su propio CharacterControl
+        self = new PhysicsRigidBody(new BoxCollisionShape(new Vector3f(0.3f, 0.9f, 0.3f)), 0f);
+        space.add(self);
+        space.update(1f / 60f);
+
+        // 2) segmentos entre puntos al azar de las salas, de hasta PVS_RANGE m
+        Random rnd = new Random(BenchWorld.SEED);
+        List<Room> rooms = layout.floors().get(0).rooms();
+        for (int k = 0; k < SEGMENTS; k++) {
+            Vector3f a = randomPoint(rooms.get(rnd.nextInt(rooms.size())), rnd, y0 + EYE), b;
+            do {
+                b = randomPoint(rooms.get(rnd.nextInt(rooms.size())), rnd, y0 + EYE);
+            } while (a.distance(b) > PVS_RANGE);
+            from[k] = a;
+            to[k] = b;
+        }
+
+        int agree = 0, visible = 0;
+        for (int k = 0; k < SEGMENTS; k++) {
+            boolean g = grid.clear(from[k].x, from[k].z, to[k].x, to[k].z), r = rayClear(from[k], to[k]);
+            if (g == r) agree++;
+            if (r) visible++;
+        }
+        System.out.printf("%n%d segmentos, %d muros: %d visibles según Bullet, %d coincidencias%n",
+                SEGMENTS, walls.size(), visible, agree);
+    }
+
+    private static Vector3f randomPoint(Room r, Random rnd, float y) {
+        return new Vector3f(r.x() + 1f + rnd.nextFloat() * (r.w() - 2f), y, r.z() + 1f + rnd.nextFloat() * (r.h() - 2f));
+    }
+
+    /**
+     * El camino anterior: rayTest y el impacto más cercano que no sea el observador.
+     */
+    private boolean rayClear(Vector3f a, Vector3f b) {
+        List<PhysicsRayTestResult> results = space.rayTest(a, b);
+        PhysicsCollisionObject closest = null;
+        float minFrac = Float.MAX_VALUE;
+        for (PhysicsRayTestResult rr : results) {
+            PhysicsCollisionObject obj = rr.getCollisionObject();
+            if (obj == self) continue;
+            if (rr.getHitFraction() < minFrac) {
+                minFrac = rr.getHitFraction();
+                closest = obj;
+            }
+        }
+        return closest == null;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public int sightGrid() {
+        int visible = 0;
+        for (int k = 0; k < SEGMENTS; k++) {
+            if (grid.clear(from[k].x, from[k].z, to[k].x, to[k].z)) visible++;
+        }
+        return visible;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public int rayTest() {
+        int visible = 0;
+        for (int k = 0; k < SEGMENTS; k++) {
+            if (rayClear(from[k], to[k])) visible++;
+        }
+        return visible;
+    }
+}
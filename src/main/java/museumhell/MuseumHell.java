@@ -65,29 +65,32 @@ public class MuseumHell extends SimpleApplication {
         stateManager.attach(physics);
         physics.setDebugEnabled(false);
 
-        // 4) Mundo
-        WorldInitState worldState = new WorldInitState(assetManager, rootNode, physics, visuals, cameraBase);
-        stateManager.attach(worldState);
+        // 4) Mundo: se construye en segundo plano; el resto arranca en onWorldReady
+        stateManager.attach(new WorldInitState(assetManager, rootNode, physics, visuals, cameraBase, this::onWorldReady));
+
+        // 5) Ajuste final de cámara (FOV)
+        cam.setFrustumNear(0.525f);
+    }
+
+    private void onWorldReady(WorldInitState worldState) {
         world = worldState.getWorldBuilder();
         museumLayout = worldState.getMuseumLayout();
         SecurityCamera camBuilder = worldState.getCameraBuilder();
 
-        // 5) Jugador
+        // 1) Jugador
         Room startRoom = museumLayout.floors().get(0).rooms().get(0);
         player = new PlayerController(physics.getPhysicsSpace(), startRoom.center3f(5f));
         rootNode.attachChild(player.getNode());
 
-        // 6) GameSystemState
+        // 2) GameSystemState
         GameSystemState gameState = new GameSystemState(visuals,assetManager, rootNode, physics, world, museumLayout, player, camBuilder, audio);
         stateManager.attach(gameState);
-
-        // 7) Ajuste final de cámara (FOV)
-        cam.setFrustumNear(0.525f);
     }
 
 
     @Override
     public void simpleUpdate(float tpf) {
+        if (world == null) return; // mundo aún cargando
         player.update(tpf);
         world.update(tpf);
     }
@@ -2,9 +2,6 @@ package museumhell.engine.world.builders;
 
 import com.jme3.asset.AssetManager;
 import com.jme3.bounding.BoundingBox;
-import com.jme3.bullet.PhysicsSpace;
-import com.jme3.bullet.control.RigidBodyControl;
-import com.jme3.bullet.util.CollisionShapeFactory;
 import com.jme3.material.Material;
 import com.jme3.material.RenderState;
 import com.jme3.math.ColorRGBA;
@@ -16,8 +13,11 @@ import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import museumhell.engine.world.levelgen.enums.Direction;
 import museumhell.engine.world.levelgen.Room;
+import museumhell.utils.GeoUtil;
+import museumhell.utils.GeoUtil.Rect;
 import museumhell.utils.media.AssetLoader;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static museumhell.engine.world.levelgen.enums.Direction.*;
@@ -25,19 +25,19 @@ import static museumhell.utils.ConstantManager.*;
 
 public class _2WallBuilder {
     private final Node root;
-    private final PhysicsSpace space;
     private final Material wallMat;
     private final Spatial wallModel, wall2Model;
 
     private final float wallLength, wallHeight, wallThickness;
     private final float wall2Length, wall2Height, wall2Thickness;
+    private final float wallMidY, wall2MidY;      // centro vertical del modelo, en fracción de su altura
 
     private final Quaternion rotNS = new Quaternion().fromAngleAxis(FastMath.HALF_PI, Vector3f.UNIT_Y);
     private final Quaternion rotEW = new Quaternion();
+    private final List<Rect> footprints = new ArrayList<>();   // planta XZ de los muros de la planta en curso
 
-    public _2WallBuilder(AssetManager assetManager, Node root, PhysicsSpace space, AssetLoader assetLoader) {
+    public _2WallBuilder(AssetManager assetManager, Node root, AssetLoader assetLoader) {
         this.root = root;
-        this.space = space;
 
         this.wallModel = assetLoader.get("wall1");
         this.wall2Model = assetLoader.get("wall2");
@@ -47,12 +47,14 @@ public class _2WallBuilder {
         wallLength = bb1.getXExtent() * 2f;
         wallHeight = bb1.getYExtent() * 2f;
         wallThickness = bb1.getZExtent() * 2f;
+        wallMidY = bb1.getCenter().y / wallHeight;
 
         wall2Model.updateGeometricState();
         BoundingBox bb2 = (BoundingBox) wall2Model.getWorldBound();
         wall2Length = bb2.getXExtent() * 2f;
         wall2Height = bb2.getYExtent() * 2f;
         wall2Thickness = bb2.getZExtent() * 2f;
+        wall2MidY = bb2.getCenter().y / wall2Height;
 
         wallMat = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
         wallMat.setBoolean("UseMaterialColors", true);
@@ -68,7 +70,7 @@ public class _2WallBuilder {
         float sx = (dir == NORTH || dir == SOUTH) ? length : WALL_T;
         float sz = (dir == NORTH || dir == SOUTH) ? WALL_T : length;
 
-        Spatial wall = wallModel.clone();
+        Spatial wall = wallModel.clone(false);
         if (dir == NORTH || dir == SOUTH) {
             wall.setLocalRotation(rotNS);
             wall.setLocalScale(sz / wallLength, h / wallHeight, sx / wallThickness);
@@ -104,7 +106,7 @@ public class _2WallBuilder {
         };
         wall.setLocalTranslation(tx, y0, tz);
 
-        addStaticModel(wall);
+        addStaticModel(wall, new Rect(tx - sx * 0.5f, tx + sx * 0.5f, tz - sz * 0.5f, tz + sz * 0.5f), y0 + wallMidY * h, h);
     }
 
     public void buildOpening(Room r, Direction dir, float y0, float h, List<Room> rooms, float holeWidth, float thickness) {
@@ -120,18 +122,18 @@ public class _2WallBuilder {
             float tz = (dir == NORTH) ? zEdge - halfT : zEdge + halfT;
 
             if (leftW > 0) {
-                Spatial slice = wall2Model.clone();
+                Spatial slice = wall2Model.clone(false);
                 slice.setLocalRotation(rotNS);
                 slice.setLocalScale(thickness / wall2Length, h / wall2Height, leftW / wall2Thickness);
                 slice.setLocalTranslation(r.x() + leftW * 0.5f, y0, tz);
-                addStaticModel(slice);
+                addStaticModel(slice, new Rect(r.x(), r.x() + leftW, tz - halfT, tz + halfT), y0 + wall2MidY * h, h);
             }
             if (rightW > 0) {
-                Spatial slice = wall2Model.clone();
+                Spatial slice = wall2Model.clone(false);
                 slice.setLocalRotation(rotNS);
                 slice.setLocalScale(thickness / wall2Length, h / wall2Height, rightW / wall2Thickness);
                 slice.setLocalTranslation(r.x() + r.w() - rightW * 0.5f, y0, tz);
-                addStaticModel(slice);
+                addStaticModel(slice, new Rect(r.x() + r.w() - rightW, r.x() + r.w(), tz - halfT, tz + halfT), y0 + wall2MidY * h, h);
             }
 
         } else {
@@ -142,18 +144,18 @@ public class _2WallBuilder {
             float tx = (dir == WEST) ? xEdge - halfT : xEdge + halfT;
 
             if (backD > 0) {
-                Spatial slice = wall2Model.clone();
+                Spatial slice = wall2Model.clone(false);
                 slice.setLocalRotation(rotEW);
                 slice.setLocalScale(thickness / wall2Length, h / wall2Height, backD / wall2Thickness);
                 slice.setLocalTranslation(tx, y0, r.z() + backD * 0.5f);
-                addStaticModel(slice);
+                addStaticModel(slice, new Rect(tx - halfT, tx + halfT, r.z(), r.z() + backD), y0 + wall2MidY * h, h);
             }
             if (frontD > 0) {
-                Spatial slice = wall2Model.clone();
+                Spatial slice = wall2Model.clone(false);
                 slice.setLocalRotation(rotEW);
                 slice.setLocalScale(thickness / wall2Length, h / wall2Height, frontD / wall2Thickness);
                 slice.setLocalTranslation(tx, y0, r.z() + r.h() - frontD * 0.5f);
-                addStaticModel(slice);
+                addStaticModel(slice, new Rect(tx - halfT, tx + halfT, r.z() + r.h() - frontD, r.z() + r.h()), y0 + wall2MidY * h, h);
             }
         }
     }
@@ -185,10 +187,23 @@ public class _2WallBuilder {
         throw new IllegalStateException("No vecino válido para dir=" + dir + " en sala " + r);
     }
 
-    private void addStaticModel(Spatial s) {
+    /**
+     * Devuelve las huellas en planta de los muros construidos desde la última llamada y las olvida.
+     */
+    public List<Rect> takeFootprints() {
+        List<Rect> out = List.copyOf(footprints);
+        footprints.clear();
+        return out;
+    }
+
+    /**
+     * Cuelga el tramo de muro y le da cuerpo a partir de su huella en planta y su centro vertical {@code yC}.
+     */
+    private void addStaticModel(Spatial s, Rect footprint, float yC, float h) {
         root.attachChild(s);
-        var body = new RigidBodyControl(CollisionShapeFactory.createMeshShape(s), 0);
-        s.addControl(body);
-        space.add(body);
+        Vector3f center = new Vector3f((footprint.x1() + footprint.x2()) * 0.5f, yC, (footprint.z1() + footprint.z2()) * 0.5f);
+        Vector3f half = new Vector3f((footprint.x2() - footprint.x1()) * 0.5f, h * 0.5f, (footprint.z2() - footprint.z1()) * 0.5f);
+        GeoUtil.addStaticBody(root, s, center, half);
+        footprints.add(footprint);
     }
 }
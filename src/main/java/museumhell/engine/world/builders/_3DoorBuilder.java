@@ -1,7 +1,6 @@
 package museumhell.engine.world.builders;
 
 import com.jme3.asset.AssetManager;
-import com.jme3.bullet.PhysicsSpace;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
 import museumhell.engine.world.levelgen.enums.Direction;
@@ -16,13 +15,11 @@ import static museumhell.utils.ConstantManager.*;
 public class _3DoorBuilder {
     private final AssetManager assetManager;
     private final _2WallBuilder wallBuilder;
-    private final PhysicsSpace space;
     private final Node root;
     private final List<Door> doors;
 
-    public _3DoorBuilder(AssetManager assetManager, PhysicsSpace space, Node root, List<Door> doors, _2WallBuilder wallBuilder) {
+    public _3DoorBuilder(AssetManager assetManager, Node root, List<Door> doors, _2WallBuilder wallBuilder) {
         this.assetManager = assetManager;
-        this.space = space;
         this.root = root;
         this.doors = doors;
         this.wallBuilder  = wallBuilder;
@@ -67,7 +64,7 @@ public class _3DoorBuilder {
         float t = (dir == Direction.NORTH || dir == Direction.SOUTH) ? DOOR_T : DOOR_W;
 
         // 5) Construcción y registro
-        Door d = new Door(assetManager, space, center, w, h, t, offset);
+        Door d = new Door(assetManager, center, w, h, t, offset);
         root.attachChild(d.getSpatial());
         doors.add(d);
     }
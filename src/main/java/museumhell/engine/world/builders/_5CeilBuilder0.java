@@ -1,36 +1,29 @@
 package museumhell.engine.world.builders;
 
 import com.jme3.asset.AssetManager;
-import com.jme3.bullet.PhysicsSpace;
 import com.jme3.material.Material;
-import com.jme3.math.ColorRGBA;
 import com.jme3.scene.Node;
 import museumhell.utils.GeoUtil.Rect;
+import museumhell.utils.media.MaterialRegistry;
 
 import java.util.List;
 
 
 public class _5CeilBuilder0 extends _0HorizontalBuilder {
 
-    public _5CeilBuilder0(Node root, PhysicsSpace space, AssetManager am) {
-        super(root, space, am);
+    public _5CeilBuilder0(Node root, AssetManager am) {
+        super(root, am);
     }
 
     @Override
-    protected Material makeMaterial() {
-        Material m = new Material(am, "Common/MatDefs/Light/Lighting.j3md");
-        m.setBoolean("UseMaterialColors", true);
+    protected Material material() {
+        return MaterialRegistry.of(am).ceiling();
+    }
 
+    @Override
+    protected float tint() {
         // Gris muy tenue con ligera variación aleatoria
-        float k = 0.04f + (float) Math.random() * 0.03f;
-        ColorRGBA base = ColorRGBA.Brown.mult(k);
-
-        m.setColor("Ambient", base);
-        m.setColor("Diffuse", base);
-        m.setColor("Specular", ColorRGBA.Brown.mult(0.1f));
-        m.setFloat("Shininess", 1f);
-
-        return m;
+        return 0.04f + (float) Math.random() * 0.03f;
     }
 
 
@@ -1,5 +1,6 @@
 package museumhell.engine.world.builders;
 
+import com.jme3.light.Light;
 import com.jme3.light.PointLight;
 import com.jme3.light.SpotLight;
 import com.jme3.math.ColorRGBA;
@@ -9,10 +10,15 @@ import com.jme3.scene.Node;
 import museumhell.engine.world.levelgen.Room;
 import museumhell.game.ai.SecurityCamera;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.IntFunction;
 
 import static museumhell.utils.ConstantManager.*;
 
@@ -21,10 +27,31 @@ public class _6LightPlacer {
     private SpotLight flashlight;
     private Vector3f smoothPos;
     private Vector3f smoothDir;
-    private final Map<Room, PointLight> roomBeacons = new HashMap<>();
+    // balizas de alarma: un puñado de luces que se prestan a la sala que entra en alarma
+    private final Deque<PointLight> freeBeacons = new ArrayDeque<>();
+    private final Map<Room, PointLight> activeBeacons = new HashMap<>();
+    private final Map<PointLight, Node> beaconParent = new HashMap<>();
+    private IntFunction<Node> floorRoot;
+    // luces creadas durante la construcción (hilo de carga), por planta; se enganchan en attachStagedLights()
+    private final Map<Integer, List<Light>> staged = new HashMap<>();
+    // focos de cámara: los enciende y apaga LightBudgetState según el presupuesto
+    private final List<ManagedLight> managed = new ArrayList<>();
+    // focos de techo: _8LightBaker hornea su aporte en el suelo y en escena solo cuelgan del nodo Shell de la planta
+    private final Map<Integer, Map<Room, List<SpotLight>>> ceilingSpots = new HashMap<>();
+
+    /**
+     * Foco sujeto al presupuesto de luces; {@code baseColor} es su color a intensidad completa.
+     */
+    public record ManagedLight(SpotLight light, int floor, Room room, ColorRGBA baseColor) {
+    }
 
     public _6LightPlacer(Node root) {
         this.root = root;
+        for (int i = 0; i < BEACON_POOL; i++) {
+            PointLight beacon = new PointLight();
+            beacon.setColor(new ColorRGBA(0.5f, 0f, 0f, 1f).multLocal(2f));
+            freeBeacons.push(beacon);
+        }
     }
 
     public void initFlashlight(Vector3f startPos, Vector3f startDir) {
@@ -53,18 +80,21 @@ public class _6LightPlacer {
         }
     }
 
-    public void placeLights(List<Room> rooms, float baseY, float height) {
-        Random rnd = new Random();
+    /**
+     * Elige las salas con focos de techo; con la misma semilla salen las mismas, y así el horneado se puede cachear.
+     */
+    public void placeLights(long seed, int floor, List<Room> rooms, float baseY, float height) {
+        Random rnd = new Random(seed * 31 + floor);
         for (Room room : rooms) {
             // sólo 1 de cada 5 salas
             if (rnd.nextInt(6) != 0) {
                 continue;
             }
-            placeRoomLight(room, baseY, height);
+            placeRoomLight(floor, room, baseY, height);
         }
     }
 
-    private void placeRoomLight(Room room, float baseY, float height) {
+    private void placeRoomLight(int floor, Room room, float baseY, float height) {
         float ceilingY = baseY + height - 0.05f; // un poco por debajo del techo
 
         float x1 = room.x() + 0.75f;
@@ -77,13 +107,13 @@ public class _6LightPlacer {
         ColorRGBA color = new ColorRGBA(1f, 0.85f, 0.6f, 1f).multLocal(2.5f);
 
         // 4 focos de techo hacia abajo
-        addSpot(x1, ceilingY, z1, Vector3f.UNIT_Y.negate(), range, angle, color);
-        addSpot(x2, ceilingY, z1, Vector3f.UNIT_Y.negate(), range, angle, color);
-        addSpot(x1, ceilingY, z2, Vector3f.UNIT_Y.negate(), range, angle, color);
-        addSpot(x2, ceilingY, z2, Vector3f.UNIT_Y.negate(), range, angle, color);
+        addSpot(floor, room, x1, ceilingY, z1, Vector3f.UNIT_Y.negate(), range, angle, color);
+        addSpot(floor, room, x2, ceilingY, z1, Vector3f.UNIT_Y.negate(), range, angle, color);
+        addSpot(floor, room, x1, ceilingY, z2, Vector3f.UNIT_Y.negate(), range, angle, color);
+        addSpot(floor, room, x2, ceilingY, z2, Vector3f.UNIT_Y.negate(), range, angle, color);
     }
 
-    private void addSpot(float x, float y, float z, Vector3f direction, float range, float angle, ColorRGBA color) {
+    private void addSpot(int floor, Room room, float x, float y, float z, Vector3f direction, float range, float angle, ColorRGBA color) {
         SpotLight sl = new SpotLight();
         sl.setSpotRange(range);
         sl.setSpotInnerAngle(angle * 0.5f);
@@ -91,27 +121,40 @@ public class _6LightPlacer {
         sl.setDirection(direction.normalize());
         sl.setPosition(new Vector3f(x, y, z));
         sl.setColor(color);
-        root.addLight(sl);
+        ceilingSpots.computeIfAbsent(floor, k -> new LinkedHashMap<>()).computeIfAbsent(room, k -> new ArrayList<>()).add(sl);
     }
 
-    public void initRoomBeacons(List<Room> rooms, float baseY, float height) {
-        for (Room room : rooms) {
-            Vector3f ctr = room.center3f(baseY + height * 0.5f);
-            PointLight beacon = new PointLight();
-            beacon.setColor(new ColorRGBA(0.5f, 0f, 0f, 1f).multLocal(2f));
-            beacon.setRadius( Math.max(room.w(), room.h()) * 3f ); // cubre la sala
-            beacon.setPosition(new Vector3f(ctr.x, baseY + height - 0.1f, ctr.z));
-            beacon.setEnabled(false);
-            root.addLight(beacon);
-            roomBeacons.put(room, beacon);
-        }
+    /**
+     * Focos de techo de la planta por sala, en orden de colocación.
+     */
+    public Map<Room, List<SpotLight>> getCeilingSpots(int floor) {
+        return ceilingSpots.getOrDefault(floor, Map.of());
     }
 
-    public void setRoomBeacon(Room room, boolean enabled) {
-        PointLight beacon = roomBeacons.get(room);
-        if (beacon != null) {
-            beacon.setEnabled(enabled);
+    /**
+     * Enciende o apaga la baliza de una sala. Al encender se toma una luz del pool, se coloca en el techo
+     * de la sala y se cuelga del nodo de su planta; al apagar se devuelve. Si el pool está agotado la sala
+     * se queda sin baliza. Solo desde el hilo de render.
+     */
+    public void setRoomBeacon(Room room, int floor, float baseY, float height, boolean enabled) {
+        PointLight beacon = activeBeacons.get(room);
+        if (!enabled) {
+            if (beacon == null) return;
+            activeBeacons.remove(room);
+            beaconParent.remove(beacon).removeLight(beacon);
+            freeBeacons.push(beacon);
+            return;
         }
+        if (beacon != null || freeBeacons.isEmpty()) return;
+
+        beacon = freeBeacons.pop();
+        Vector3f ctr = room.center3f(baseY + height * 0.5f);
+        beacon.setRadius(Math.max(room.w(), room.h()) * 3f); // cubre la sala
+        beacon.setPosition(new Vector3f(ctr.x, baseY + height - 0.1f, ctr.z));
+        Node parent = floorRoot.apply(floor);
+        parent.addLight(beacon);
+        beaconParent.put(beacon, parent);
+        activeBeacons.put(room, beacon);
     }
 
     public void placeCameraLights(List<SecurityCamera.CameraData> cams) {
@@ -123,7 +166,37 @@ public class _6LightPlacer {
             sl.setPosition(info.spat().getWorldTranslation());
             sl.setDirection(info.dir());
             sl.setColor(new ColorRGBA(1f, 0.85f, 0.6f, 1f).multLocal(2.5f));
-            root.addLight(sl);
+            stage(info.floor(), sl);
+            managed.add(new ManagedLight(sl, info.floor(), info.room(), sl.getColor().clone()));
         }
     }
+
+    public List<ManagedLight> getManagedLights() {
+        return managed;
+    }
+
+    private void stage(int floor, Light l) {
+        staged.computeIfAbsent(floor, k -> new ArrayList<>()).add(l);
+    }
+
+    /**
+     * Solo desde el hilo de render: engancha cada luz preparada al nodo de su planta, de modo que
+     * solo ilumine la geometría de esa planta, y los focos de techo a {@code shellRoot}, el subnodo de
+     * muros, techos, escaleras y puertas: el suelo ya los lleva horneados. La linterna sigue en el root.
+     * Las balizas del pool se cuelgan más tarde, a demanda, del nodo de planta.
+     */
+    public void attachStagedLights(IntFunction<Node> floorRoot, IntFunction<Node> shellRoot) {
+        this.floorRoot = floorRoot;
+        staged.forEach((floor, lights) -> {
+            Node n = floorRoot.apply(floor);
+            for (Light l : lights) n.addLight(l);
+        });
+        staged.clear();
+        ceilingSpots.forEach((floor, rooms) -> {
+            Node n = shellRoot.apply(floor);
+            for (List<SpotLight> spots : rooms.values()) {
+                for (SpotLight sl : spots) n.addLight(sl);
+            }
+        });
+    }
 }
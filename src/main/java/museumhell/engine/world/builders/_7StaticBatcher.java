@@ -0,0 +1,77 @@
+package museumhell.engine.world.builders;
+
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.Matrix3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import jme3tools.optimize.GeometryBatchFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Última etapa de construcción de una planta:
+ * <ul>
+ *   <li>las formas de colisión de cada pieza se juntan en un único cuerpo estático compuesto,</li>
+ *   <li>la geometría se fusiona en una malla por material.</li>
+ * </ul>
+ * El cuerpo resultante queda como control del propio nodo de la planta. Bullet no admite un compuesto dentro
+ * de otro, así que las piezas cuya forma ya es compuesta (modelos con malla triangular en modo MESH) conservan
+ * su propio cuerpo estático en un nodo "Collider" de la planta.
+ */
+public class _7StaticBatcher {
+
+    public record Stats(int geometriesBefore, int geometriesAfter, int bodiesBefore, int bodiesApart) {
+    }
+
+    public Stats batch(Node floor) {
+        // 1) cada RigidBodyControl de las piezas pasa a ser un hijo del compuesto, con su misma pose
+        List<RigidBodyControl> pieces = new ArrayList<>();
+        floor.depthFirstTraversal(s -> {
+            RigidBodyControl rb = s.getControl(RigidBodyControl.class);
+            if (rb != null) pieces.add(rb);
+        });
+
+        CompoundCollisionShape compound = new CompoundCollisionShape();
+        List<Node> apart = new ArrayList<>();
+        for (RigidBodyControl rb : pieces) {
+            rb.getSpatial().removeControl(rb);
+            if (rb.getCollisionShape() instanceof CompoundCollisionShape) {
+                Node collider = new Node("Collider");
+                collider.setLocalTranslation(rb.getPhysicsLocation());
+                collider.setLocalRotation(rb.getPhysicsRotation());
+                collider.addControl(new RigidBodyControl(rb.getCollisionShape(), 0));
+                apart.add(collider);
+                continue;
+            }
+            compound.addChildShape(rb.getCollisionShape(), rb.getPhysicsLocation(), rb.getPhysicsRotationMatrix(new Matrix3f()));
+        }
+
+        // 2) fusión de la geometría
+        int before = countGeometries(floor);
+        GeometryBatchFactory.optimize(floor);
+
+        // los nodos de los modelos clonados quedan vacíos tras la fusión
+        for (Spatial child : new ArrayList<>(floor.getChildren())) {
+            if (child instanceof Node n && countGeometries(n) == 0) n.removeFromParent();
+        }
+
+        // los colliders sueltos se cuelgan después de la limpieza, que los tomaría por nodos vacíos
+        for (Node collider : apart) floor.attachChild(collider);
+
+        if (pieces.size() > apart.size()) {
+            floor.addControl(new RigidBodyControl(compound, 0));
+        }
+        return new Stats(before, countGeometries(floor), pieces.size(), apart.size());
+    }
+
+    private static int countGeometries(Spatial s) {
+        int[] n = {0};
+        s.depthFirstTraversal(sp -> {
+            if (sp instanceof Geometry) n[0]++;
+        });
+        return n[0];
+    }
+}
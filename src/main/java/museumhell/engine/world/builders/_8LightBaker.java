@@ -0,0 +1,271 @@
+package museumhell.engine.world.builders;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.light.SpotLight;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+import museumhell.engine.world.levelgen.Room;
+import museumhell.utils.GeoUtil;
+import museumhell.utils.GeoUtil.Rect;
+import museumhell.utils.media.MaterialRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static museumhell.utils.ConstantManager.*;
+
+/**
+ * Hornea en CPU el aporte de los focos de techo sobre el suelo de cada sala iluminada.
+ * <p>
+ * El suelo viene de un modelo con su propio material, así que en vez de tocar sus vértices se genera una
+ * rejilla de {@link museumhell.utils.ConstantManager#BAKE_CELL} m justo encima (sin los huecos de escalera) con
+ * el color de vértice = irradiancia × albedo, dibujada con mezcla aditiva. Se evalúa la misma fórmula que el
+ * shader de Lighting para un SpotLight: atenuación lineal por rango, caída entre los conos y N·L con N = +Y.
+ * <p>
+ * Solo se hornea el suelo. Los focos siguen en escena colgados del nodo "Shell_i" de la planta, así que muros,
+ * techos, escaleras y puertas los reciben en tiempo real como antes. Lo que se pierde: el suelo solo recibe la
+ * parte difusa (sin brillo especular), y guardias, botín y cámaras, que cuelgan del nodo de planta y no de
+ * "Shell_i", dejan de recibir los focos de techo.
+ * <p>
+ * Las salas se hornean en paralelo. Con un directorio de caché, los colores de cada planta se guardan por
+ * semilla y planta, con una huella de las entradas (focos, salas, huecos y constantes BAKE_*) en la cabecera;
+ * si no coincide se hornea de nuevo. En la siguiente carga solo se rehace la rejilla.
+ */
+public class _8LightBaker {
+    private static final int MAGIC = 0x4D484C42; // "MHLB"
+    private static final int VERSION = 2;
+
+    private final AssetManager am;
+    private Path cacheDir;
+
+    public _8LightBaker(AssetManager am) {
+        this.am = am;
+    }
+
+    public void setCacheDir(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    private record RoomBake(float[] pos, float[] col, int[] idx) {
+    }
+
+    /**
+     * Devuelve la geometría con la luz horneada de la planta, o {@code null} si no tiene focos de techo.
+     */
+    public Geometry bake(long seed, int floorIdx, float y0, Map<Room, List<SpotLight>> spots, List<Rect> floorHoles) {
+        if (spots.isEmpty()) return null;
+
+        // 1) rejillas por sala en paralelo; los colores se calculan solo si no están en caché
+        Path file = cacheDir == null ? null : cacheDir.resolve(String.format("bake_v%d_%016x_f%d.bin", VERSION, seed, floorIdx));
+        int inputs = file == null ? 0 : inputsHash(y0, spots, floorHoles);
+        float[] cached = readCache(file, inputs);
+        boolean compute = cached == null;
+
+        List<RoomBake> parts = new ArrayList<>(spots.entrySet()).parallelStream()
+                .map(e -> bakeRoom(e.getKey(), e.getValue(), y0, floorHoles, compute))
+                .toList();
+
+        // 2) una sola malla por planta
+        int verts = 0, tris = 0;
+        for (RoomBake p : parts) {
+            verts += p.pos().length / 3;
+            tris += p.idx().length;
+        }
+        if (verts == 0) return null;
+        if (cached != null && cached.length != verts * 4) {
+            cached = null; // la rejilla ya no coincide (otros huecos, otra celda): se rehace
+            parts = new ArrayList<>(spots.entrySet()).parallelStream()
+                    .map(e -> bakeRoom(e.getKey(), e.getValue(), y0, floorHoles, true))
+                    .toList();
+        }
+
+        float[] pos = new float[verts * 3];
+        float[] col = cached != null ? cached : new float[verts * 4];
+        int[] idx = new int[tris];
+        int v = 0, t = 0;
+        for (RoomBake p : parts) {
+            System.arraycopy(p.pos(), 0, pos, v * 3, p.pos().length);
+            if (cached == null) System.arraycopy(p.col(), 0, col, v * 4, p.col().length);
+            for (int i : p.idx()) idx[t++] = i + v;
+            v += p.pos().length / 3;
+        }
+        if (cached == null) writeCache(file, inputs, col);
+
+        Mesh mesh = new Mesh();
+        mesh.setBuffer(VertexBuffer.Type.Position, 3, BufferUtils.createFloatBuffer(pos));
+        mesh.setBuffer(VertexBuffer.Type.Color, 4, BufferUtils.createFloatBuffer(col));
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, BufferUtils.createIntBuffer(idx));
+        mesh.updateBound();
+
+        Geometry g = new Geometry("BakedLight_" + floorIdx, mesh);
+        g.setMaterial(MaterialRegistry.of(am).bakedLight());
+        g.setQueueBucket(RenderQueue.Bucket.Transparent);
+        g.setShadowMode(RenderQueue.ShadowMode.Off);
+        return g;
+    }
+
+    /* ---------- una sala ---------- */
+    private RoomBake bakeRoom(Room r, List<SpotLight> lights, float y0, List<Rect> holes, boolean compute) {
+        List<Rect> rects = GeoUtil.subtract(new Rect(r.x(), r.x() + r.w(), r.z(), r.z() + r.h()), holes);
+        int verts = 0, quads = 0;
+        for (Rect rc : rects) {
+            int nx = cells(rc.x2() - rc.x1()), nz = cells(rc.z2() - rc.z1());
+            verts += (nx + 1) * (nz + 1);
+            quads += nx * nz;
+        }
+
+        float[] pos = new float[verts * 3];
+        float[] col = compute ? new float[verts * 4] : new float[0];
+        int[] idx = new int[quads * 6];
+        float y = y0 + BAKE_LIFT;
+        Vector3f p = new Vector3f();
+        int v = 0, t = 0;
+        for (Rect rc : rects) {
+            int nx = cells(rc.x2() - rc.x1()), nz = cells(rc.z2() - rc.z1());
+            int first = v;
+            for (int j = 0; j <= nz; j++) {
+                float z = rc.z1() + (rc.z2() - rc.z1()) * j / nz;
+                for (int i = 0; i <= nx; i++) {
+                    float x = rc.x1() + (rc.x2() - rc.x1()) * i / nx;
+                    pos[v * 3] = x;
+                    pos[v * 3 + 1] = y;
+                    pos[v * 3 + 2] = z;
+                    if (compute) irradiance(lights, p.set(x, y0, z), col, v * 4);
+                    v++;
+                }
+            }
+            for (int j = 0; j < nz; j++) {
+                for (int i = 0; i < nx; i++) {
+                    int a = first + j * (nx + 1) + i, b = a + 1, c = a + nx + 1, d = c + 1;
+                    // cara hacia +Y
+                    idx[t++] = a;
+                    idx[t++] = c;
+                    idx[t++] = b;
+                    idx[t++] = b;
+                    idx[t++] = c;
+                    idx[t++] = d;
+                }
+            }
+        }
+        return new RoomBake(pos, col, idx);
+    }
+
+    private static int cells(float len) {
+        return Math.max(1, (int) Math.ceil(len / BAKE_CELL));
+    }
+
+    /**
+     * Suma de los focos sobre un punto del suelo (normal +Y), ya multiplicada por el albedo.
+     */
+    private static void irradiance(List<SpotLight> lights, Vector3f p, float[] out, int o) {
+        float r = 0, g = 0, b = 0;
+        for (SpotLight sl : lights) {
+            Vector3f lp = sl.getPosition();
+            float dx = lp.x - p.x, dy = lp.y - p.y, dz = lp.z - p.z;
+            float dist = FastMath.sqrt(dx * dx + dy * dy + dz * dz);
+            if (dist <= 0f) continue;
+            float att = FastMath.clamp(1f - dist / sl.getSpotRange(), 0f, 1f);
+            if (att == 0f) continue;
+
+            float lx = dx / dist, ly = dy / dist, lz = dz / dist;
+            Vector3f sd = sl.getDirection();
+            float cos = -(lx * sd.x + ly * sd.y + lz * sd.z);
+            float cosOuter = FastMath.cos(sl.getSpotOuterAngle());
+            float cosInner = FastMath.cos(sl.getSpotInnerAngle());
+            float falloff = FastMath.clamp((cos - cosOuter) / (cosInner - cosOuter), 0f, 1f);
+            float ndotl = Math.max(0f, ly);
+
+            float k = att * falloff * ndotl * BAKE_ALBEDO;
+            r += sl.getColor().r * k;
+            g += sl.getColor().g * k;
+            b += sl.getColor().b * k;
+        }
+        out[o] = r;
+        out[o + 1] = g;
+        out[o + 2] = b;
+        out[o + 3] = 1f;
+    }
+
+    /* ---------- caché ---------- */
+
+    /**
+     * Huella de todo lo que decide los colores horneados, en el mismo orden en que se recorren las salas.
+     */
+    private static int inputsHash(float y0, Map<Room, List<SpotLight>> spots, List<Rect> holes) {
+        int h = Float.hashCode(y0);
+        h = 31 * h + Float.hashCode(BAKE_CELL);
+        h = 31 * h + Float.hashCode(BAKE_ALBEDO);
+        h = 31 * h + Float.hashCode(BAKE_LIFT);
+        for (Rect rc : holes) {
+            h = 31 * h + Float.hashCode(rc.x1());
+            h = 31 * h + Float.hashCode(rc.x2());
+            h = 31 * h + Float.hashCode(rc.z1());
+            h = 31 * h + Float.hashCode(rc.z2());
+        }
+        for (Map.Entry<Room, List<SpotLight>> e : spots.entrySet()) {
+            Room r = e.getKey();
+            h = 31 * h + r.x();
+            h = 31 * h + r.z();
+            h = 31 * h + r.w();
+            h = 31 * h + r.h();
+            for (SpotLight sl : e.getValue()) {
+                h = 31 * h + sl.getPosition().hashCode();
+                h = 31 * h + sl.getDirection().hashCode();
+                h = 31 * h + sl.getColor().hashCode();
+                h = 31 * h + Float.hashCode(sl.getSpotRange());
+                h = 31 * h + Float.hashCode(sl.getSpotInnerAngle());
+                h = 31 * h + Float.hashCode(sl.getSpotOuterAngle());
+            }
+        }
+        return h;
+    }
+
+    private static float[] readCache(Path file, int inputs) {
+        if (file == null || !Files.isRegularFile(file)) return null;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getInt() != inputs) return null;
+            float[] col = new float[in.getInt()];
+            in.asFloatBuffer().get(col);
+            return col;
+        } catch (IOException | RuntimeException e) {
+            return null; // corrupto → se hornea de nuevo
+        }
+    }
+
+    private static void writeCache(Path file, int inputs, float[] col) {
+        if (file == null) return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + col.length * 4);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(inputs);
+            out.writeInt(col.length);
+            for (float f : col) out.writeFloat(f);
+            out.flush();
+
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "bake", ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+            // sin caché seguimos funcionando igual
+        }
+    }
+}
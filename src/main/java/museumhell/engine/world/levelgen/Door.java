@@ -1,15 +1,14 @@
 package museumhell.engine.world.levelgen;
 
 import com.jme3.asset.AssetManager;
-import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.control.RigidBodyControl;
-import com.jme3.material.Material;
-import com.jme3.math.ColorRGBA;
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.queue.RenderQueue;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.shape.Box;
+import museumhell.utils.GeoUtil.Rect;
+import museumhell.utils.media.MaterialRegistry;
 
 import static museumhell.utils.ConstantManager.*;
 
@@ -18,26 +17,27 @@ public class Door {
     private final RigidBodyControl body;
     private final Vector3f closedPos;
     private final Vector3f openPos;
+    private final float travel;
+    private final Rect footprint;
+    private final Vector3f pos = new Vector3f();
     private boolean targetOpen = false;
     private float progress = 0f;
+    private boolean bodyEnabled = true;
 
-    public Door(AssetManager am, PhysicsSpace space, Vector3f center, float w, float h, float t, Vector3f offset) {
+    public Door(AssetManager am, Vector3f center, float w, float h, float t, Vector3f offset) {
         closedPos = center.clone();
         Vector3f dir = offset.normalize();
         openPos = center.add(offset).subtract(dir.mult(PROTRUDE));
+        travel = openPos.distance(closedPos);
+        footprint = new Rect(center.x - w * .5f, center.x + w * .5f, center.z - t * .5f, center.z + t * .5f);
 
         geo = new Geometry("Door", new Box(w * .5f, h * .5f, t * .5f));
-        Material m = new Material(am, "Common/MatDefs/Light/Lighting.j3md");
-        m.setBoolean("UseMaterialColors", true);
-        m.setColor("Diffuse", ColorRGBA.White);
-        m.setColor("Ambient", ColorRGBA.Black.mult(0.25f));
-        geo.setMaterial(m);
+        geo.setMaterial(MaterialRegistry.of(am).door());
         geo.setShadowMode(RenderQueue.ShadowMode.CastAndReceive);
         geo.setLocalTranslation(closedPos);
 
         body = new RigidBodyControl(0);
         geo.addControl(body);
-        space.add(body);
         body.setKinematic(true);
         body.setPhysicsLocation(closedPos);
     }
@@ -50,6 +50,13 @@ public class Door {
         return closedPos;
     }
 
+    /**
+     * Planta XZ de la hoja cerrada.
+     */
+    public Rect getClosedFootprint() {
+        return footprint;
+    }
+
     public boolean isOpen() {
         return progress >= 0.99f;
     }
@@ -58,13 +65,30 @@ public class Door {
         targetOpen = !targetOpen;
     }
 
-    public void update(float tpf) {
+    /**
+     * {@code true} mientras la puerta no haya llegado a su destino.
+     */
+    public boolean isMoving() {
+        return progress != (targetOpen ? 1f : 0f);
+    }
+
+    /**
+     * Avanza la animación; devuelve {@code false} cuando la puerta ya está quieta y puede salir del conjunto activo.
+     * No reserva memoria, y el cuerpo solo se habilita o deshabilita al cruzar el estado "abierta del todo".
+     */
+    public boolean update(float tpf) {
         float dirSign = targetOpen ? +1f : -1f;
-        progress = FastMath.clamp(progress + dirSign * (SPEED * tpf) / openPos.distance(closedPos), 0f, 1f);
+        progress = FastMath.clamp(progress + dirSign * (SPEED * tpf) / travel, 0f, 1f);
 
-        Vector3f pos = FastMath.interpolateLinear(progress, closedPos, openPos);
+        pos.interpolateLocal(closedPos, openPos, progress);
         geo.setLocalTranslation(pos);
         body.setPhysicsLocation(pos);
-        body.setEnabled(progress < 1f);
+
+        boolean wantBody = progress < 1f;
+        if (wantBody != bodyEnabled) {
+            body.setEnabled(wantBody);
+            bodyEnabled = wantBody;
+        }
+        return isMoving();
     }
 }
@@ -2,7 +2,10 @@ package museumhell.engine.world.levelgen;
 
 import java.util.List;
 
-public record MuseumLayout(List<LevelLayout> floors, float floorHeight) {
+/**
+ * @param seed semilla con la que se generó; los pasos posteriores (luces, horneado) derivan de ella la suya
+ */
+public record MuseumLayout(List<LevelLayout> floors, float floorHeight, StairPlan stairs, long seed) {
 
     public float yOf(int floorIndex) {
         return floorIndex * floorHeight;
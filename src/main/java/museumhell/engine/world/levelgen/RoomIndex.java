@@ -0,0 +1,70 @@
+package museumhell.engine.world.levelgen;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Localización de puntos en las salas de una planta. Las hojas del BSP cubren la planta sin solaparse y con
+ * bordes enteros, así que se comprimen sus coordenadas en una rejilla de celdas y cada celda apunta a su sala;
+ * una consulta son dos búsquedas binarias.
+ * <p>
+ * Regla de pertenencia: las salas son semiabiertas, {@code [x, x+w) × [z, z+h)}, de modo que un punto sobre
+ * una pared compartida pertenece a la sala del lado positivo; los bordes exteriores de la planta se incluyen.
+ * Los pasillos que crea ConnectionGenerator no están en {@code rooms()}: un punto dentro de un pasillo
+ * (que monta medio metro sobre cada sala) resuelve a la sala que lo contiene. Si dos salas se solaparan,
+ * gana la primera de la lista.
+ */
+public final class RoomIndex {
+
+    private final int[] xs, zs;
+    private final Room[] cells; // [j * (xs.length - 1) + i]
+
+    public RoomIndex(List<Room> rooms) {
+        TreeSet<Integer> xCuts = new TreeSet<>(), zCuts = new TreeSet<>();
+        for (Room r : rooms) {
+            xCuts.add(r.x());
+            xCuts.add(r.x() + r.w());
+            zCuts.add(r.z());
+            zCuts.add(r.z() + r.h());
+        }
+        xs = xCuts.stream().mapToInt(Integer::intValue).toArray();
+        zs = zCuts.stream().mapToInt(Integer::intValue).toArray();
+        int nx = Math.max(0, xs.length - 1), nz = Math.max(0, zs.length - 1);
+        cells = new Room[nx * nz];
+
+        for (Room r : rooms) {
+            int i0 = Arrays.binarySearch(xs, r.x()), i1 = Arrays.binarySearch(xs, r.x() + r.w());
+            int j0 = Arrays.binarySearch(zs, r.z()), j1 = Arrays.binarySearch(zs, r.z() + r.h());
+            for (int j = j0; j < j1; j++) {
+                for (int i = i0; i < i1; i++) {
+                    if (cells[j * nx + i] == null) cells[j * nx + i] = r;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sala que contiene {@code (x, z)}, o {@code null} si cae fuera de la planta.
+     */
+    public Room locate(float x, float z) {
+        if (cells.length == 0) return null;
+        int i = slot(xs, x), j = slot(zs, z);
+        if (i < 0 || j < 0) return null;
+        return cells[j * (xs.length - 1) + i];
+    }
+
+    /**
+     * Índice de la celda {@code [a[k], a[k+1])} que contiene {@code v}; el extremo final cuenta en la última.
+     */
+    private static int slot(int[] a, float v) {
+        if (v < a[0] || v > a[a.length - 1]) return -1;
+        int lo = 0, hi = a.length - 1;      // invariante: a[lo] <= v < a[hi] (salvo v == último)
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= v) lo = mid;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,6 @@
+package museumhell.engine.world.levelgen;
+
+import museumhell.engine.world.levelgen.enums.StairOrientation;
+
+public record StairPlacement(int floor, float x, float z, StairOrientation orientation) {
+}
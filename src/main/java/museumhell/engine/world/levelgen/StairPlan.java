@@ -0,0 +1,12 @@
+package museumhell.engine.world.levelgen;
+
+import museumhell.utils.GeoUtil.Rect;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escaleras planificadas para todo el museo: huecos por planta (suelo y techo) y colocación de cada tramo.
+ */
+public record StairPlan(Map<Integer, List<Rect>> holes, List<StairPlacement> placements) {
+}
@@ -1,23 +1,22 @@
 package museumhell.engine.world.levelgen;
 
 import com.jme3.asset.AssetManager;
-import com.jme3.bullet.PhysicsSpace;
-import com.jme3.bullet.control.RigidBodyControl;
 import com.jme3.material.Material;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
 import com.jme3.scene.shape.Box;
 import museumhell.utils.GeoUtil;
+import museumhell.utils.media.MaterialRegistry;
 
 import static museumhell.utils.ConstantManager.*;
 
 public final class Stairs {
 
-    public static void add(Node root, PhysicsSpace ps, AssetManager am, Vector3f base, float floorHeight) {
+    public static void add(Node root, AssetManager am, Vector3f base, float floorHeight) {
 
         int steps = (int) Math.ceil(floorHeight / STEP_H);
-        Material mat = GeoUtil.makeMat(am);
+        Material mat = MaterialRegistry.of(am).stairs();
 
         for (int i = 0; i < steps; i++) {
 
@@ -27,13 +26,11 @@ public final class Stairs {
 
             Box shape = new Box(STAIR_WIDTH * .5f, h * .5f, STEP_DEPTH * .5f);
             Geometry g = new Geometry("StairStep_" + i, shape);
-            g.setMaterial(mat.clone());
+            g.setMaterial(mat);
 
             g.setLocalTranslation(base.x, yCenter, zCenter);
-            g.addControl(new RigidBodyControl(0));
-
             root.attachChild(g);
-            ps.add(g);
+            GeoUtil.addStaticBody(root, g, g.getLocalTranslation(), new Vector3f(STAIR_WIDTH * .5f, h * .5f, STEP_DEPTH * .5f));
         }
     }
 
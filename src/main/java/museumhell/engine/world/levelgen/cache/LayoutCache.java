@@ -0,0 +1,205 @@
+package museumhell.engine.world.levelgen.cache;
+
+import museumhell.engine.world.levelgen.*;
+import museumhell.engine.world.levelgen.enums.ConnectionType;
+import museumhell.engine.world.levelgen.enums.Direction;
+import museumhell.engine.world.levelgen.enums.StairOrientation;
+import museumhell.engine.world.levelgen.generator.MuseumGenerator;
+import museumhell.utils.GeoUtil.Rect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Caché en disco de MuseumLayout en un formato binario compacto (big-endian):
+ * <pre>
+ * cabecera : magic, versión, versión del generador, huella de parámetros, w, d, plantas, semilla, altura de planta
+ * planta   : nº salas visibles, nº salas totales, salas (x z w h), nº conexiones, conexiones (a b dir tipo)
+ * escaleras: huecos por planta (x1 x2 z1 z2) y colocaciones (planta x z orientación)
+ * </pre>
+ * Las salas que solo aparecen en conexiones (pasillos) van detrás de las visibles, para que al leer
+ * se conserve la identidad compartida entre las dos conexiones de un mismo pasillo.
+ * <p>
+ * La lectura se hace sobre un MappedByteBuffer. {@link #VERSION} es la del formato; los cambios del generador
+ * los cubren {@link MuseumGenerator#VERSION} y {@link MuseumGenerator#paramsHash()}, que van en la cabecera
+ * y en el nombre del fichero.
+ */
+public final class LayoutCache {
+
+    private static final int MAGIC = 0x4D484C43; // "MHLC"
+    private static final int VERSION = 3;
+
+    private final Path dir;
+
+    public LayoutCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Devuelve el layout cacheado para estos parámetros o lo genera y lo guarda.
+     * Cualquier fallo de E/S acaba en una generación normal.
+     */
+    public MuseumLayout loadOrGenerate(int w, int d, int floors, long seed) {
+        Path file = dir.resolve(fileName(w, d, floors, seed));
+        if (Files.isRegularFile(file)) {
+            try {
+                MuseumLayout cached = read(file, w, d, floors, seed);
+                if (cached != null) return cached;
+            } catch (IOException | RuntimeException ignored) {
+                // fichero corrupto o de otra versión → se regenera
+            }
+        }
+
+        MuseumLayout layout = MuseumGenerator.generate(w, d, floors, seed);
+        try {
+            write(file, layout, w, d, seed);
+        } catch (IOException ignored) {
+            // sin caché seguimos funcionando igual
+        }
+        return layout;
+    }
+
+    private static String fileName(int w, int d, int floors, long seed) {
+        return String.format("museum_v%d_g%d_%08x_%dx%d_%df_%016x.bin",
+                VERSION, MuseumGenerator.VERSION, MuseumGenerator.paramsHash(), w, d, floors, seed);
+    }
+
+    /* ---------- escritura ---------- */
+
+    public static void write(Path file, MuseumLayout layout, int w, int d, long seed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(MuseumGenerator.VERSION);
+        out.writeInt(MuseumGenerator.paramsHash());
+        out.writeInt(w);
+        out.writeInt(d);
+        out.writeInt(layout.floors().size());
+        out.writeLong(seed);
+        out.writeFloat(layout.floorHeight());
+
+        for (LevelLayout lvl : layout.floors()) {
+            // tabla de salas: primero las visibles, luego las que solo referencian las conexiones
+            Map<Room, Integer> ids = new IdentityHashMap<>();
+            List<Room> table = new ArrayList<>(lvl.rooms());
+            for (int i = 0; i < table.size(); i++) ids.put(table.get(i), i);
+            for (Connection c : lvl.conns()) {
+                for (Room r : List.of(c.a(), c.b())) {
+                    if (!ids.containsKey(r)) {
+                        ids.put(r, table.size());
+                        table.add(r);
+                    }
+                }
+            }
+
+            out.writeInt(lvl.rooms().size());
+            out.writeInt(table.size());
+            for (Room r : table) {
+                out.writeInt(r.x());
+                out.writeInt(r.z());
+                out.writeInt(r.w());
+                out.writeInt(r.h());
+            }
+
+            out.writeInt(lvl.conns().size());
+            for (Connection c : lvl.conns()) {
+                out.writeInt(ids.get(c.a()));
+                out.writeInt(ids.get(c.b()));
+                out.writeByte(c.dir().ordinal());
+                out.writeByte(c.type().ordinal());
+            }
+        }
+
+        StairPlan stairs = layout.stairs();
+        out.writeInt(stairs.holes().size());
+        for (var e : new TreeMap<>(stairs.holes()).entrySet()) {
+            out.writeInt(e.getKey());
+            out.writeInt(e.getValue().size());
+            for (Rect r : e.getValue()) {
+                out.writeFloat(r.x1());
+                out.writeFloat(r.x2());
+                out.writeFloat(r.z1());
+                out.writeFloat(r.z2());
+            }
+        }
+        out.writeInt(stairs.placements().size());
+        for (StairPlacement sp : stairs.placements()) {
+            out.writeInt(sp.floor());
+            out.writeFloat(sp.x());
+            out.writeFloat(sp.z());
+            out.writeByte(sp.orientation().ordinal());
+        }
+        out.flush();
+
+        // escritura atómica: otro proceso nunca ve un fichero a medias
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), "layout", ".tmp");
+        Files.write(tmp, bytes.toByteArray());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /* ---------- lectura ---------- */
+
+    /**
+     * Lee un layout cacheado; devuelve {@code null} si la cabecera no coincide con los parámetros pedidos
+     * o con el generador actual.
+     */
+    public static MuseumLayout read(Path file, int w, int d, int floors, long seed) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+            if (in.getInt() != MuseumGenerator.VERSION || in.getInt() != MuseumGenerator.paramsHash()) return null;
+            if (in.getInt() != w || in.getInt() != d || in.getInt() != floors || in.getLong() != seed) return null;
+            float floorH = in.getFloat();
+
+            Direction[] dirs = Direction.values();
+            ConnectionType[] types = ConnectionType.values();
+            List<LevelLayout> levels = new ArrayList<>(floors);
+            for (int f = 0; f < floors; f++) {
+                int visible = in.getInt();
+                Room[] table = new Room[in.getInt()];
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = new Room(in.getInt(), in.getInt(), in.getInt(), in.getInt());
+                }
+
+                Connection[] conns = new Connection[in.getInt()];
+                for (int i = 0; i < conns.length; i++) {
+                    Room a = table[in.getInt()];
+                    Room b = table[in.getInt()];
+                    conns[i] = new Connection(a, b, dirs[in.get()], types[in.get()]);
+                }
+                levels.add(new LevelLayout(List.of(table).subList(0, visible), List.of(conns)));
+            }
+
+            Map<Integer, List<Rect>> holes = new HashMap<>();
+            int holeFloors = in.getInt();
+            for (int i = 0; i < holeFloors; i++) {
+                int floor = in.getInt();
+                Rect[] rects = new Rect[in.getInt()];
+                for (int j = 0; j < rects.length; j++) {
+                    rects[j] = new Rect(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+                }
+                holes.put(floor, new ArrayList<>(List.of(rects)));
+            }
+
+            StairOrientation[] orients = StairOrientation.values();
+            StairPlacement[] placements = new StairPlacement[in.getInt()];
+            for (int i = 0; i < placements.length; i++) {
+                placements[i] = new StairPlacement(in.getInt(), in.getFloat(), in.getFloat(), orients[in.get()]);
+            }
+
+            return new MuseumLayout(List.copyOf(levels), floorH, new StairPlan(holes, List.of(placements)), seed);
+        }
+    }
+}
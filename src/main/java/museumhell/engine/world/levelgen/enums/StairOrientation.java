@@ -0,0 +1,5 @@
+package museumhell.engine.world.levelgen.enums;
+
+public enum StairOrientation {
+    EW, NS
+}
@@ -0,0 +1,107 @@
+package museumhell.engine.world.levelgen.generator;
+
+import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.levelgen.enums.Direction;
+import museumhell.utils.GeoUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice de adyacencia por coordenada de pared compartida.
+ * Cada sala se registra en cuatro cubos (borde norte, sur, oeste y este) indexados por la
+ * coordenada del borde; dentro de cada cubo las salas se ordenan por su inicio en el eje
+ * perpendicular, así que la búsqueda de vecino es una búsqueda binaria por intervalo.
+ * <p>
+ * Supone salas sin solape entre sí (las hojas del BSP), de modo que las salas de un mismo
+ * cubo son intervalos disjuntos y quedan también ordenadas por su final.
+ */
+public final class AdjacencyIndex {
+
+    private final List<Room> rooms;
+    private final Map<Integer, int[]> byNorthEdge; // clave: z
+    private final Map<Integer, int[]> bySouthEdge; // clave: z + h
+    private final Map<Integer, int[]> byWestEdge;  // clave: x
+    private final Map<Integer, int[]> byEastEdge;  // clave: x + w
+
+    public AdjacencyIndex(List<Room> rooms) {
+        this.rooms = List.copyOf(rooms);
+
+        Map<Integer, List<Integer>> n = new HashMap<>();
+        Map<Integer, List<Integer>> s = new HashMap<>();
+        Map<Integer, List<Integer>> w = new HashMap<>();
+        Map<Integer, List<Integer>> e = new HashMap<>();
+        for (int i = 0; i < this.rooms.size(); i++) {
+            Room r = this.rooms.get(i);
+            n.computeIfAbsent(r.z(), k -> new ArrayList<>()).add(i);
+            s.computeIfAbsent(r.z() + r.h(), k -> new ArrayList<>()).add(i);
+            w.computeIfAbsent(r.x(), k -> new ArrayList<>()).add(i);
+            e.computeIfAbsent(r.x() + r.w(), k -> new ArrayList<>()).add(i);
+        }
+
+        byNorthEdge = freeze(n, true);
+        bySouthEdge = freeze(s, true);
+        byWestEdge = freeze(w, false);
+        byEastEdge = freeze(e, false);
+    }
+
+    private Map<Integer, int[]> freeze(Map<Integer, List<Integer>> buckets, boolean alongX) {
+        Map<Integer, int[]> out = new HashMap<>(buckets.size() * 2);
+        for (var entry : buckets.entrySet()) {
+            List<Integer> ids = entry.getValue();
+            ids.sort(Comparator.comparingInt(i -> start(rooms.get(i), alongX)));
+            out.put(entry.getKey(), ids.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return out;
+    }
+
+    /**
+     * Devuelve la sala que comparte la pared {@code dir} de {@code r} con un solape de al menos
+     * {@code minOverlap}. Si hay varias, gana la primera en el orden de la lista original
+     * (mismo criterio que el antiguo recorrido lineal).
+     */
+    public Room neighbor(Room r, Direction dir, float minOverlap) {
+        boolean alongX = dir == Direction.NORTH || dir == Direction.SOUTH;
+        int[] bucket = switch (dir) {
+            case NORTH -> bySouthEdge.get(r.z());
+            case SOUTH -> byNorthEdge.get(r.z() + r.h());
+            case WEST -> byEastEdge.get(r.x());
+            case EAST -> byWestEdge.get(r.x() + r.w());
+        };
+        if (bucket == null) return null;
+
+        int a1 = start(r, alongX);
+        int a2 = a1 + length(r, alongX);
+
+        // primera sala del cubo cuyo final queda por delante de a1
+        int lo = 0, hi = bucket.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            Room o = rooms.get(bucket[mid]);
+            if (start(o, alongX) + length(o, alongX) <= a1) lo = mid + 1;
+            else hi = mid;
+        }
+
+        int best = -1;
+        for (int i = lo; i < bucket.length; i++) {
+            Room o = rooms.get(bucket[i]);
+            int b1 = start(o, alongX);
+            if (b1 >= a2) break;
+            if (GeoUtil.overlap(a1, a2, b1, b1 + length(o, alongX)) >= minOverlap && (best < 0 || bucket[i] < best)) {
+                best = bucket[i];
+            }
+        }
+        return best < 0 ? null : rooms.get(best);
+    }
+
+    private static int start(Room r, boolean alongX) {
+        return alongX ? r.x() : r.z();
+    }
+
+    private static int length(Room r, boolean alongX) {
+        return alongX ? r.w() : r.h();
+    }
+}
@@ -27,7 +27,7 @@ public final class BspGenerator {
         // 2) Creamos un LevelLayout provisional (sin conexiones) para pasárselo al ConnectionGenerator
         LevelLayout provisional = new LevelLayout(rooms, List.of());
 
-        // 3) Generamos las conexiones con la misma semilla
+        // 3) Generamos las conexiones con la misma semilla (única pasada: MuseumGenerator y WorldBuilder las reutilizan)
         List<Connection> conns = ConnectionGenerator.build(provisional, seed);
 
         // 4) Devolvemos el LevelLayout ya completo
@@ -5,26 +5,35 @@ import museumhell.engine.world.levelgen.enums.ConnectionType;
 import museumhell.engine.world.levelgen.enums.Direction;
 import museumhell.engine.world.levelgen.LevelLayout;
 import museumhell.engine.world.levelgen.Room;
-import museumhell.utils.GeoUtil;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 import static museumhell.utils.ConstantManager.*;
 
 public class ConnectionGenerator {
 
-     public static List<Connection> build(LevelLayout layout, long seed) {
+    public static List<Connection> build(LevelLayout layout, long seed) {
         Random rnd = new Random(seed);
         List<Room> rooms = new ArrayList<>(layout.rooms());
         List<Connection> out = new ArrayList<>();
 
+        // Índice de vecinos por pared compartida + pares ya conectados (por posición en la lista)
+        AdjacencyIndex adjacency = new AdjacencyIndex(rooms);
+        Map<Room, Integer> ids = new IdentityHashMap<>();
+        for (int i = 0; i < rooms.size(); i++) ids.put(rooms.get(i), i);
+        Set<Long> linked = new HashSet<>();
+
         // Iteramos sobre cada sala para generar conexiones
         for (Room a : new ArrayList<>(rooms)) {
             for (Direction dir : Direction.values()) {
-                Room b = findNeighbor(a, rooms, dir);
-                if (b == null || alreadyAdded(out, a, b)) {
+                Room b = adjacency.neighbor(a, dir, HOLE_W);
+                if (b == null || !linked.add(pairKey(ids.get(a), ids.get(b)))) {
                     continue;
                 }
                 double p = rnd.nextDouble();
@@ -97,31 +106,7 @@ public class ConnectionGenerator {
         return out;
     }
 
-    private static boolean alreadyAdded(List<Connection> list, Room a, Room b) {
-        return list.stream().anyMatch(c -> (c.a() == a && c.b() == b) || (c.a() == b && c.b() == a));
-    }
-
-    private static Room findNeighbor(Room r, List<Room> rooms, Direction dir) {
-        for (Room o : rooms) {
-            switch (dir) {
-                case NORTH:
-                    if (o.z() + o.h() == r.z() && GeoUtil.overlap(r.x(), r.x() + r.w(), o.x(), o.x() + o.w()) >= HOLE_W)
-                        return o;
-                    break;
-                case SOUTH:
-                    if (o.z() == r.z() + r.h() && GeoUtil.overlap(r.x(), r.x() + r.w(), o.x(), o.x() + o.w()) >= HOLE_W)
-                        return o;
-                    break;
-                case WEST:
-                    if (o.x() + o.w() == r.x() && GeoUtil.overlap(r.z(), r.z() + r.h(), o.z(), o.z() + o.h()) >= HOLE_W)
-                        return o;
-                    break;
-                case EAST:
-                    if (o.x() == r.x() + r.w() && GeoUtil.overlap(r.z(), r.z() + r.h(), o.z(), o.z() + o.h()) >= HOLE_W)
-                        return o;
-                    break;
-            }
-        }
-        return null;
+    private static long pairKey(int i, int j) {
+        return ((long) Math.min(i, j) << 32) | Math.max(i, j);
     }
 }
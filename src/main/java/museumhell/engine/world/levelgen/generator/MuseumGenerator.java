@@ -1,25 +1,56 @@
 package museumhell.engine.world.levelgen.generator;
 
 
-import museumhell.engine.world.levelgen.Connection;
 import museumhell.engine.world.levelgen.LevelLayout;
 import museumhell.engine.world.levelgen.MuseumLayout;
+import museumhell.engine.world.levelgen.StairPlan;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
+
+import static museumhell.utils.ConstantManager.*;
 
 public final class MuseumGenerator {
 
+    /**
+     * Versión del algoritmo: hay que subirla si un cambio hace que una misma semilla dé otro museo.
+     */
+    public static final int VERSION = 1;
+
+    private static final float FLOOR_H = 8.5f;
+
+    /**
+     * Única etapa de generación: salas y conexiones de cada planta (vía BspGenerator) y el plan de escaleras.
+     * Todo lo que venga después (builders, IA, cámaras, loot) lee de este MuseumLayout.
+     */
     public static MuseumLayout generate(int w, int d, int floors, long seed) {
-        if (floors < 1 || floors > 3) throw new IllegalArgumentException();
-        List<LevelLayout> list = new ArrayList<>(floors);
-        for (int i = 0; i < floors; i++) {
-            long s = seed + i * 1_337;
-            LevelLayout floor = BspGenerator.generate(w, d, s);
-            List<Connection> conns = ConnectionGenerator.build(floor, s);
-            list.add(new LevelLayout(floor.rooms(), conns));
-        }
-
-        return new MuseumLayout(list, 8.5f);
+        return generate(w, d, floors, seed, floors > 1);
+    }
+
+    /**
+     * Con {@code parallel} las plantas se generan en el ForkJoinPool común. Cada planta usa solo su propia
+     * semilla ({@code seed + i * 1_337}) y el stream conserva el orden, así que el resultado es idéntico al secuencial.
+     */
+    public static MuseumLayout generate(int w, int d, int floors, long seed, boolean parallel) {
+        if (floors < 1) throw new IllegalArgumentException("floors < 1: " + floors);
+        float floorH = FLOOR_H;
+
+        IntStream idx = IntStream.range(0, floors);
+        if (parallel) idx = idx.parallel();
+        List<LevelLayout> list = idx.mapToObj(i -> BspGenerator.generate(w, d, seed + i * 1_337L)).toList();
+
+        StairPlan stairs = StairPlanner.plan(list, floorH);
+        return new MuseumLayout(list, floorH, stairs, seed);
+    }
+
+    /**
+     * Huella de los parámetros de ConstantManager que deciden el resultado de {@link #generate}. La caché de
+     * layouts la guarda junto a {@link #VERSION}, así que retocar una constante invalida los ficheros viejos.
+     */
+    public static int paramsHash() {
+        return Arrays.hashCode(new float[]{
+                FLOOR_H, HOLE_W, WALL_T, PENETRATION, MIN_ROOM, MIN_SPLIT, MAX_DEPTH,
+                STAIR_WIDTH, STEP_H, STEP_DEPTH, STAIR_WALL_GAP, STAIR_FOOT_GAP, MAX_STAIRS});
     }
 }
@@ -0,0 +1,164 @@
+package museumhell.engine.world.levelgen.generator;
+
+import com.jme3.math.FastMath;
+import museumhell.engine.world.levelgen.*;
+import museumhell.engine.world.levelgen.enums.ConnectionType;
+import museumhell.engine.world.levelgen.enums.Direction;
+import museumhell.engine.world.levelgen.enums.StairOrientation;
+import museumhell.utils.GeoUtil;
+import museumhell.utils.GeoUtil.Rect;
+
+import java.util.*;
+
+import static museumhell.engine.world.levelgen.enums.Direction.*;
+import static museumhell.utils.ConstantManager.*;
+
+/**
+ * Decide dónde van las escaleras entre cada par de plantas consecutivas a partir de las salas y conexiones ya generadas.
+ */
+public final class StairPlanner {
+
+    public static StairPlan plan(List<LevelLayout> floors, float floorH) {
+
+        Map<Integer, List<Rect>> holes = new HashMap<>();
+        List<StairPlacement> out = new ArrayList<>();
+
+        if (floors.size() < 2) return new StairPlan(holes, out);
+
+        int steps = (int) Math.ceil(floorH / STEP_H);
+        float runD = steps * STEP_DEPTH;
+        float hxPad = STAIR_WIDTH * 0.5f;
+
+        Random rnd = new Random(floors.size() * 73L);
+
+        for (int f = 0; f < floors.size() - 1; f++) {
+
+            LevelLayout A = floors.get(f);
+            LevelLayout B = floors.get(f + 1);
+
+            Map<Room, Boolean> used = new HashMap<>();
+            int placed = 0;
+
+            List<Room> roomsA = new ArrayList<>(A.rooms());
+            Collections.shuffle(roomsA, rnd);
+
+            for (boolean respectDoors : List.of(true, false)) {
+                for (Room ra : roomsA) {
+                    if (placed >= MAX_STAIRS) break;
+                    if (used.getOrDefault(ra, false)) continue;
+
+                    if (tryPlace(rnd, A, B, f, runD, hxPad, holes, out, ra, respectDoors)) {
+                        used.put(ra, true);
+                        placed++;
+                    }
+                }
+            }
+        }
+        return new StairPlan(holes, out);
+    }
+
+    private static boolean tryPlace(Random rnd, LevelLayout A, LevelLayout B, int f, float runD, float hxPad, Map<Integer, List<Rect>> holes, List<StairPlacement> out, Room ra, boolean respectDoors) {
+
+        /* probamos ambas orientaciones */
+        return attempt(rnd, A, B, f, runD, hxPad, holes, out, ra, respectDoors, StairOrientation.EW) || attempt(rnd, A, B, f, runD, hxPad, holes, out, ra, respectDoors, StairOrientation.NS);
+    }
+
+    private static boolean attempt(Random rnd, LevelLayout A, LevelLayout B, int f, float runD, float hxPad, Map<Integer, List<Rect>> holes, List<StairPlacement> out, Room ra, boolean respectDoors, StairOrientation orientation) {
+
+        List<Room> roomsB = new ArrayList<>(B.rooms());
+        Collections.shuffle(roomsB, rnd);
+
+        for (Room rb : roomsB) {
+            /* ---------- intersección horizontal ---------- */
+            int ix1 = Math.max(ra.x(), rb.x());
+            int ix2 = Math.min(ra.x() + ra.w(), rb.x() + rb.w());
+            int iz1 = Math.max(ra.z(), rb.z());
+            int iz2 = Math.min(ra.z() + ra.h(), rb.z() + rb.h());
+
+            /* ---------- hueco mínimo ---------- */
+            if (orientation == StairOrientation.EW) {
+                if (ix2 - ix1 < STAIR_WIDTH + STAIR_WALL_GAP * 2) continue;
+                if (iz2 - iz1 < runD + STAIR_FOOT_GAP * 2) continue;
+            } else {
+                if (iz2 - iz1 < STAIR_WIDTH + STAIR_WALL_GAP * 2) continue;
+                if (ix2 - ix1 < runD + STAIR_FOOT_GAP * 2) continue;
+            }
+
+            /* ---------- puertas laterales ---------- */
+            boolean s1Blocked, s2Blocked;
+            if (orientation == StairOrientation.EW) {
+                s1Blocked = !doorSpans(ra, WEST, A).isEmpty() || !doorSpans(rb, WEST, B).isEmpty();
+                s2Blocked = !doorSpans(ra, EAST, A).isEmpty() || !doorSpans(rb, EAST, B).isEmpty();
+            } else {
+                s1Blocked = !doorSpans(ra, NORTH, A).isEmpty() || !doorSpans(rb, NORTH, B).isEmpty();
+                s2Blocked = !doorSpans(ra, SOUTH, A).isEmpty() || !doorSpans(rb, SOUTH, B).isEmpty();
+            }
+            if (s1Blocked && s2Blocked) continue;
+            if (respectDoors && (s1Blocked || s2Blocked)) continue;
+
+            /* ---------- posición ---------- */
+            boolean nearS1 = s2Blocked || (!s1Blocked && rnd.nextBoolean());
+            float innerOff = WALL_T + STAIR_WALL_GAP + STAIR_WIDTH * 0.5f;
+
+            float sx, sz;
+            if (orientation == StairOrientation.EW) {
+                sx = nearS1 ? ix1 + innerOff : ix2 - innerOff;
+                float zMin = iz1 + STEP_DEPTH * 0.5f + STAIR_FOOT_GAP;
+                float zMax = iz2 - runD + STEP_DEPTH * 0.5f - STAIR_FOOT_GAP;
+                sz = (zMax > zMin) ? FastMath.interpolateLinear(rnd.nextFloat(), zMin, zMax) : zMin;
+                if (sz + runD + STEP_DEPTH * 0.5f + STAIR_FOOT_GAP > rb.z() + rb.h() - WALL_T) continue;
+            } else {
+                sz = nearS1 ? iz1 + innerOff : iz2 - innerOff;
+                float xMin = ix1 + STEP_DEPTH * 0.5f + STAIR_FOOT_GAP;
+                float xMax = ix2 - runD + STEP_DEPTH * 0.5f - STAIR_FOOT_GAP;
+                sx = (xMax > xMin) ? FastMath.interpolateLinear(rnd.nextFloat(), xMin, xMax) : xMin;
+                if (sx + runD + STEP_DEPTH * 0.5f + STAIR_FOOT_GAP > rb.x() + rb.w() - WALL_T) continue;
+            }
+
+
+            float pad = 0.05f;
+            Rect hole;
+            if (orientation == StairOrientation.EW) {
+                hole = new Rect(sx - hxPad, sx + hxPad, sz - STEP_DEPTH * 0.5f - pad, sz + runD + pad);
+            } else { /* N‑S */
+                hole = new Rect(sx - STEP_DEPTH * 0.5f - pad, sx + runD + pad, sz - hxPad, sz + hxPad);
+            }
+
+            /* ---------- colisiones ---------- */
+            if (GeoUtil.intersectsAny(hole, holes.getOrDefault(f, List.of()))) continue;
+            if (GeoUtil.intersectsAny(hole, holes.getOrDefault(f + 1, List.of()))) continue;
+
+            /* ---------- registrar ---------- */
+            holes.computeIfAbsent(f, k -> new ArrayList<>()).add(hole);
+            holes.computeIfAbsent(f + 1, k -> new ArrayList<>()).add(hole);
+            out.add(new StairPlacement(f, sx, sz, orientation));
+            return true;
+        }
+        return false;
+    }
+
+    private record Span(float a, float b) {
+    }
+
+    private static List<Span> doorSpans(Room r, Direction dir, LevelLayout L) {
+        List<Span> list = new ArrayList<>();
+        for (Connection c : L.conns()) {
+            if (c.type() == ConnectionType.CORRIDOR) continue;
+            boolean match = (c.a() == r && c.dir() == dir) || (c.b() == r && GeoUtil.opposite(c.dir()) == dir);
+            if (!match) continue;
+
+            Room o = (c.a() == r) ? c.b() : c.a();
+            if (dir == NORTH || dir == SOUTH) {
+                float x1 = Math.max(r.x(), o.x()), x2 = Math.min(r.x() + r.w(), o.x() + o.w());
+                list.add(new Span(x1, x2));
+            } else {
+                float z1 = Math.max(r.z(), o.z()), z2 = Math.min(r.z() + r.h(), o.z() + o.h());
+                list.add(new Span(z1, z2));
+            }
+        }
+        return list;
+    }
+
+    private StairPlanner() {
+    }
+}
@@ -0,0 +1,105 @@
+package museumhell.engine.world.world;
+
+import com.jme3.math.Vector3f;
+import museumhell.engine.world.levelgen.Door;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static museumhell.utils.ConstantManager.DOOR_GRID_CELL;
+
+/**
+ * Rejilla uniforme por planta con las puertas según su punto de acceso. Una consulta de radio {@code r}
+ * solo mira las celdas que toca el cuadrado de lado {@code 2r} y las plantas cuyo rango de altura lo alcanza.
+ * Se construye una vez terminado el mundo; las puertas no cambian de punto de acceso al abrirse.
+ */
+public final class DoorIndex {
+
+    private final List<Door> doors;
+    private final float floorH;
+    private final float minX, minZ;
+    private final int cols, rows;
+    private final int[][][] cells; // [planta][fila * cols + col] → índices en doors
+
+    public DoorIndex(List<Door> doors, int floors, float floorH) {
+        this.doors = List.copyOf(doors);
+        this.floorH = floorH;
+
+        float x0 = Float.MAX_VALUE, z0 = Float.MAX_VALUE, x1 = -Float.MAX_VALUE, z1 = -Float.MAX_VALUE;
+        for (Door d : this.doors) {
+            Vector3f p = d.getAccessPoint();
+            x0 = Math.min(x0, p.x);
+            z0 = Math.min(z0, p.z);
+            x1 = Math.max(x1, p.x);
+            z1 = Math.max(z1, p.z);
+        }
+        if (this.doors.isEmpty()) {
+            x0 = z0 = x1 = z1 = 0f;
+        }
+        minX = x0;
+        minZ = z0;
+        cols = (int) ((x1 - x0) / DOOR_GRID_CELL) + 1;
+        rows = (int) ((z1 - z0) / DOOR_GRID_CELL) + 1;
+
+        List<List<List<Integer>>> tmp = new ArrayList<>();
+        for (int f = 0; f < floors; f++) {
+            List<List<Integer>> floorCells = new ArrayList<>(cols * rows);
+            for (int c = 0; c < cols * rows; c++) floorCells.add(new ArrayList<>(2));
+            tmp.add(floorCells);
+        }
+        for (int i = 0; i < this.doors.size(); i++) {
+            Vector3f p = this.doors.get(i).getAccessPoint();
+            int f = floorOf(p.y, floors);
+            tmp.get(f).get(row(p.z) * cols + col(p.x)).add(i);
+        }
+
+        cells = new int[floors][][];
+        for (int f = 0; f < floors; f++) {
+            cells[f] = new int[cols * rows][];
+            for (int c = 0; c < cols * rows; c++) {
+                cells[f][c] = tmp.get(f).get(c).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    /**
+     * Puerta cuyo punto de acceso está más cerca de {@code p} y a menos de {@code maxDist}, o {@code null}.
+     */
+    public Door nearest(Vector3f p, float maxDist) {
+        Door best = null;
+        float best2 = maxDist * maxDist;
+
+        int f0 = floorOf(p.y - maxDist, cells.length);
+        int f1 = floorOf(p.y + maxDist, cells.length);
+        int c0 = col(p.x - maxDist), c1 = col(p.x + maxDist);
+        int r0 = row(p.z - maxDist), r1 = row(p.z + maxDist);
+
+        for (int f = f0; f <= f1; f++) {
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    for (int i : cells[f][r * cols + c]) {
+                        Door d = doors.get(i);
+                        float d2 = d.getAccessPoint().distanceSquared(p);
+                        if (d2 < best2) {
+                            best2 = d2;
+                            best = d;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int floorOf(float y, int floors) {
+        return Math.max(0, Math.min((int) Math.floor(y / floorH), floors - 1));
+    }
+
+    private int col(float x) {
+        return Math.max(0, Math.min((int) ((x - minX) / DOOR_GRID_CELL), cols - 1));
+    }
+
+    private int row(float z) {
+        return Math.max(0, Math.min((int) ((z - minZ) / DOOR_GRID_CELL), rows - 1));
+    }
+}
@@ -0,0 +1,194 @@
+package museumhell.engine.world.world;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.light.SpotLight;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import museumhell.engine.world.builders._6LightPlacer.ManagedLight;
+import museumhell.engine.world.levelgen.Connection;
+import museumhell.engine.world.levelgen.LevelLayout;
+import museumhell.engine.world.levelgen.MuseumLayout;
+import museumhell.engine.world.levelgen.Room;
+
+import java.util.*;
+
+import static museumhell.utils.ConstantManager.*;
+
+/**
+ * Mantiene encendidos como mucho {@code budget} focos de cámara a la vez (los de techo quedan fuera: el suelo
+ * los lleva horneados y muros y techos los reciben siempre).
+ * Cada {@link museumhell.utils.ConstantManager#LIGHT_RANK_PERIOD} s se ordenan por distancia a la cámara,
+ * penalizando los de salas no alcanzables desde la sala actual y los de otras plantas; los elegidos suben
+ * de intensidad y el resto se apaga en {@link museumhell.utils.ConstantManager#LIGHT_FADE_TIME} s.
+ * Las balizas de alarma y la linterna quedan fuera del presupuesto.
+ */
+public class LightBudgetState extends BaseAppState {
+    private final WorldBuilder world;
+    private final MuseumLayout layout;
+    private final List<ManagedLight> lights;
+    private final Map<Room, Set<Room>> reachable = new IdentityHashMap<>();
+
+    private final float[] weight;
+    private final float[] score;
+    private final boolean[] wanted;
+    private int[] heap;
+    private int budget;
+    private float rankTimer;
+
+    private final ColorRGBA tmpColor = new ColorRGBA();
+    private Camera cam;
+
+    public LightBudgetState(WorldBuilder world, MuseumLayout layout, int budget) {
+        this.world = world;
+        this.layout = layout;
+        this.lights = world.getLightPlacer().getManagedLights();
+        this.weight = new float[lights.size()];
+        this.score = new float[lights.size()];
+        this.wanted = new boolean[lights.size()];
+        setBudget(budget);
+
+        for (LevelLayout lvl : layout.floors()) {
+            indexReachable(lvl);
+        }
+    }
+
+    /**
+     * Salas a una conexión de cada sala; los pasillos se atraviesan, así que la sala del otro extremo también cuenta.
+     * Todo va por identidad: dos plantas pueden tener salas con las mismas coordenadas.
+     */
+    private void indexReachable(LevelLayout lvl) {
+        Map<Room, Set<Room>> direct = new IdentityHashMap<>();
+        for (Connection c : lvl.conns()) {
+            direct.computeIfAbsent(c.a(), k -> identitySet()).add(c.b());
+            direct.computeIfAbsent(c.b(), k -> identitySet()).add(c.a());
+        }
+        Set<Room> visible = identitySet();
+        visible.addAll(lvl.rooms());
+        for (Room r : lvl.rooms()) {
+            Set<Room> out = identitySet();
+            for (Room n : direct.getOrDefault(r, Set.of())) {
+                out.add(n);
+                if (!visible.contains(n)) out.addAll(direct.getOrDefault(n, Set.of()));
+            }
+            out.add(r);
+            reachable.put(r, out);
+        }
+    }
+
+    private static Set<Room> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public void setBudget(int budget) {
+        this.budget = Math.max(0, Math.min(budget, lights.size()));
+        this.heap = new int[this.budget];
+        rankTimer = 0f;
+    }
+
+    @Override
+    protected void initialize(Application app) {
+        cam = app.getCamera();
+        // arrancamos con todo apagado; el primer ranking enciende los cercanos con fundido
+        for (ManagedLight ml : lights) {
+            ml.light().setEnabled(false);
+        }
+    }
+
+    @Override
+    public void update(float tpf) {
+        rankTimer -= tpf;
+        if (rankTimer <= 0f) {
+            rank(cam.getLocation());
+            rankTimer = LIGHT_RANK_PERIOD;
+        }
+
+        float step = tpf / LIGHT_FADE_TIME;
+        for (int i = 0; i < weight.length; i++) {
+            float target = wanted[i] ? 1f : 0f;
+            if (weight[i] == target) continue;
+            weight[i] = wanted[i] ? Math.min(1f, weight[i] + step) : Math.max(0f, weight[i] - step);
+
+            ManagedLight ml = lights.get(i);
+            SpotLight sl = ml.light();
+            sl.setColor(tmpColor.set(ml.baseColor()).multLocal(weight[i]));
+            sl.setEnabled(weight[i] > 0f);
+        }
+    }
+
+    /* ---------- ranking: los {@code budget} focos de menor puntuación ---------- */
+    private void rank(Vector3f eye) {
+        Room here = world.whichRoom(eye);
+        Set<Room> near = here != null ? reachable.getOrDefault(here, Set.of()) : Set.of();
+        int floor = (int) FastMath.floor(eye.y / layout.floorHeight());
+
+        for (int i = 0; i < score.length; i++) {
+            ManagedLight ml = lights.get(i);
+            float s = ml.light().getPosition().distanceSquared(eye);
+            if (ml.floor() != floor) s *= LIGHT_OTHER_FLOOR_PENALTY;
+            else if (!near.contains(ml.room())) s *= LIGHT_UNREACHABLE_PENALTY;
+            score[i] = s;
+            wanted[i] = false;
+        }
+
+        // montículo de máximos de tamaño budget: la raíz es el peor de los elegidos
+        int n = 0;
+        for (int i = 0; i < score.length; i++) {
+            if (n < budget) {
+                heap[n] = i;
+                siftUp(n++);
+            } else if (n > 0 && score[i] < score[heap[0]]) {
+                heap[0] = i;
+                siftDown(n);
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            wanted[heap[k]] = true;
+        }
+    }
+
+    private void siftUp(int k) {
+        while (k > 0) {
+            int p = (k - 1) >>> 1;
+            if (score[heap[p]] >= score[heap[k]]) return;
+            swap(p, k);
+            k = p;
+        }
+    }
+
+    private void siftDown(int n) {
+        int k = 0;
+        while (true) {
+            int l = 2 * k + 1, r = l + 1, big = k;
+            if (l < n && score[heap[l]] > score[heap[big]]) big = l;
+            if (r < n && score[heap[r]] > score[heap[big]]) big = r;
+            if (big == k) return;
+            swap(k, big);
+            k = big;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int t = heap[a];
+        heap[a] = heap[b];
+        heap[b] = t;
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+    }
+
+    @Override
+    protected void onEnable() {
+    }
+
+    @Override
+    protected void onDisable() {
+    }
+}
@@ -0,0 +1,115 @@
+package museumhell.engine.world.world;
+
+import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.levelgen.RoomIndex;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static museumhell.utils.ConstantManager.PVS_RANGE;
+import static museumhell.utils.ConstantManager.SIGHT_CELL;
+
+/**
+ * Conjunto potencialmente visible de una planta: una matriz de bits sala × sala que dice si desde algún punto
+ * de una se puede ver algún punto de la otra a menos de {@code PVS_RANGE}. Se calcula una vez al cargar.
+ * <p>
+ * Toda línea de visión entre dos salas sale de la primera y entra en la segunda cruzando un hueco del muro, así
+ * que basta probar segmentos entre las celdas de paso de la {@link SightGrid} (celdas libres con una vecina
+ * libre de otra sala). Las puertas son portales condicionales: aquí cuentan como abiertas, y si están cerradas
+ * ya lo dirá la consulta exacta. Un bit a {@code false} descarta la pareja sin más trabajo; a {@code true}
+ * solo significa "puede".
+ */
+public final class RoomPvs {
+
+    private final Map<Room, Integer> ids = new IdentityHashMap<>();
+    private final int words;            // longs por fila
+    private final long[] bits;          // fila a: bits [a * words, (a + 1) * words)
+    private final int pairs;            // segmentos probados, para el log
+
+    public RoomPvs(List<Room> rooms, RoomIndex index, SightGrid grid) {
+        int n = rooms.size();
+        for (int i = 0; i < n; i++) ids.put(rooms.get(i), i);
+        words = (n + 63) >>> 6;
+        bits = new long[n * words];
+        for (int i = 0; i < n; i++) set(i, i);
+
+        // 1) celdas de paso: libres y con la vecina +x o +z libre y de otra sala
+        int nx = grid.cols(), nz = grid.rows();
+        int[] cellRoom = new int[nx * nz];
+        for (int j = 0; j < nz; j++) {
+            for (int i = 0; i < nx; i++) {
+                Integer id = grid.isWall(i, j) ? null : ids.get(index.locate(grid.cellX(i), grid.cellZ(j)));
+                cellRoom[j * nx + i] = id == null ? -1 : id;
+            }
+        }
+        List<float[]> portals = new ArrayList<>();     // {x, z, salaA, salaB}
+        for (int j = 0; j < nz; j++) {
+            for (int i = 0; i < nx; i++) {
+                int a = cellRoom[j * nx + i];
+                if (a < 0) continue;
+                int east = i + 1 < nx ? cellRoom[j * nx + i + 1] : -1;
+                int south = j + 1 < nz ? cellRoom[(j + 1) * nx + i] : -1;
+                if (east >= 0 && east != a) portals.add(new float[]{grid.cellX(i) + SIGHT_CELL * 0.5f, grid.cellZ(j), a, east});
+                if (south >= 0 && south != a) portals.add(new float[]{grid.cellX(i), grid.cellZ(j) + SIGHT_CELL * 0.5f, a, south});
+            }
+        }
+
+        // 2) cada pareja de pasos a tiro: si el segmento está libre, se ven las salas de ambos lados
+        int tested = 0;
+        float range2 = PVS_RANGE * PVS_RANGE;
+        for (int p = 0; p < portals.size(); p++) {
+            float[] a = portals.get(p);
+            int a0 = (int) a[2], a1 = (int) a[3];
+            set(a0, a1);
+            for (int q = p + 1; q < portals.size(); q++) {
+                float[] b = portals.get(q);
+                int b0 = (int) b[2], b1 = (int) b[3];
+                if (get(a0, b0) && get(a0, b1) && get(a1, b0) && get(a1, b1)) continue;
+
+                float dx = b[0] - a[0], dz = b[1] - a[1];
+                if (dx * dx + dz * dz > range2) continue;
+
+                tested++;
+                if (!grid.clearThroughDoors(a[0], a[1], b[0], b[1])) continue;
+                set(a0, b0);
+                set(a0, b1);
+                set(a1, b0);
+                set(a1, b1);
+            }
+        }
+        pairs = tested;
+    }
+
+    private void set(int a, int b) {
+        bits[a * words + (b >>> 6)] |= 1L << b;
+        bits[b * words + (a >>> 6)] |= 1L << a;
+    }
+
+    private boolean get(int a, int b) {
+        return (bits[a * words + (b >>> 6)] & (1L << b)) != 0;
+    }
+
+    /**
+     * {@code false} si ningún punto de {@code a} puede ver ninguno de {@code b}; salas ajenas a la planta
+     * (o {@code null}) nunca se ven.
+     */
+    public boolean mayBeVisible(Room a, Room b) {
+        Integer ia = a == null ? null : ids.get(a), ib = b == null ? null : ids.get(b);
+        return ia != null && ib != null && get(ia, ib);
+    }
+
+    /**
+     * Parejas de salas marcadas como visibles (contando cada sala consigo misma y cada pareja en los dos sentidos).
+     */
+    public int visiblePairs() {
+        int c = 0;
+        for (long w : bits) c += Long.bitCount(w);
+        return c;
+    }
+
+    public int testedSegments() {
+        return pairs;
+    }
+}
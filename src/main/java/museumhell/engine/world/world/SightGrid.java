@@ -0,0 +1,149 @@
+package museumhell.engine.world.world;
+
+import museumhell.engine.world.levelgen.Door;
+import museumhell.utils.GeoUtil.Rect;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static museumhell.utils.ConstantManager.SIGHT_CELL;
+
+/**
+ * Rejilla de opacidad de una planta para las líneas de visión de guardias y cámaras.
+ * <p>
+ * Los muros (huellas de _2WallBuilder, ya con sus huecos) son celdas fijas: opaca la celda cuyo centro cae
+ * dentro, que con muros de {@code WALL_T} nunca deja rendijas. Las puertas son celdas dinámicas: opaca toda celda
+ * que toque la hoja cerrada, y solo mientras la puerta no esté abierta del todo. Escaleras, barandillas y
+ * personajes no tapan.
+ * <p>
+ * {@link #clear} recorre con DDA (Amanatides–Woo) exactamente las celdas que cruza el segmento, sin reservar
+ * memoria ni tocar la física (frente a {@code rayTest}, ver SightBench en src/jmh).
+ */
+public final class SightGrid {
+    private static final short FREE = -1, WALL = -2;
+
+    private final float x0, z0;
+    private final int nx, nz;
+    private final short[] cells;        // FREE, WALL o índice en doors
+    private final Door[] doors;
+
+    public SightGrid(List<Rect> walls, List<Door> floorDoors) {
+        float minX = Float.MAX_VALUE, minZ = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for (Rect w : walls) {
+            minX = Math.min(minX, w.x1());
+            minZ = Math.min(minZ, w.z1());
+            maxX = Math.max(maxX, w.x2());
+            maxZ = Math.max(maxZ, w.z2());
+        }
+        if (walls.isEmpty()) minX = minZ = maxX = maxZ = 0f;
+        x0 = minX;
+        z0 = minZ;
+        nx = Math.max(1, (int) Math.ceil((maxX - minX) / SIGHT_CELL));
+        nz = Math.max(1, (int) Math.ceil((maxZ - minZ) / SIGHT_CELL));
+        cells = new short[nx * nz];
+        Arrays.fill(cells, FREE);
+
+        // 1) muros: centro de celda dentro del rectángulo
+        for (Rect w : walls) {
+            int i0 = Math.max(0, (int) Math.ceil((w.x1() - x0) / SIGHT_CELL - 0.5f));
+            int i1 = Math.min(nx - 1, (int) Math.floor((w.x2() - x0) / SIGHT_CELL - 0.5f));
+            int j0 = Math.max(0, (int) Math.ceil((w.z1() - z0) / SIGHT_CELL - 0.5f));
+            int j1 = Math.min(nz - 1, (int) Math.floor((w.z2() - z0) / SIGHT_CELL - 0.5f));
+            for (int j = j0; j <= j1; j++) {
+                for (int i = i0; i <= i1; i++) cells[j * nx + i] = WALL;
+            }
+        }
+
+        // 2) puertas: toda celda que toque la hoja, para que una hoja más fina que la celda no se escape
+        doors = floorDoors.toArray(new Door[0]);
+        for (short d = 0; d < doors.length; d++) {
+            Rect r = doors[d].getClosedFootprint();
+            int i0 = Math.max(0, (int) Math.floor((r.x1() - x0) / SIGHT_CELL));
+            int i1 = Math.min(nx - 1, (int) Math.ceil((r.x2() - x0) / SIGHT_CELL) - 1);
+            int j0 = Math.max(0, (int) Math.floor((r.z1() - z0) / SIGHT_CELL));
+            int j1 = Math.min(nz - 1, (int) Math.ceil((r.z2() - z0) / SIGHT_CELL) - 1);
+            for (int j = j0; j <= j1; j++) {
+                for (int i = i0; i <= i1; i++) cells[j * nx + i] = d;
+            }
+        }
+    }
+
+    /**
+     * {@code true} si nada opaco corta el segmento {@code a → b} en planta. Las celdas opacas del principio se
+     * ignoran: una cámara va anclada al muro y no debe taparse a sí misma.
+     */
+    public boolean clear(float ax, float az, float bx, float bz) {
+        return walk(ax, az, bx, bz, true);
+    }
+
+    /**
+     * Como {@link #clear} pero con todas las puertas abiertas: el caso más permisivo, para precálculos.
+     */
+    public boolean clearThroughDoors(float ax, float az, float bx, float bz) {
+        return walk(ax, az, bx, bz, false);
+    }
+
+    private boolean walk(float ax, float az, float bx, float bz, boolean doorsBlock) {
+        float gx = (ax - x0) / SIGHT_CELL, gz = (az - z0) / SIGHT_CELL;
+        float ex = (bx - x0) / SIGHT_CELL, ez = (bz - z0) / SIGHT_CELL;
+        int i = (int) Math.floor(gx), j = (int) Math.floor(gz);
+        int ti = (int) Math.floor(ex), tj = (int) Math.floor(ez);
+
+        float dx = ex - gx, dz = ez - gz;
+        int si = dx > 0 ? 1 : -1, sj = dz > 0 ? 1 : -1;
+        float tDeltaX = dx != 0f ? Math.abs(1f / dx) : Float.POSITIVE_INFINITY;
+        float tDeltaZ = dz != 0f ? Math.abs(1f / dz) : Float.POSITIVE_INFINITY;
+        float tMaxX = dx > 0 ? (i + 1 - gx) * tDeltaX : dx < 0 ? (gx - i) * tDeltaX : Float.POSITIVE_INFINITY;
+        float tMaxZ = dz > 0 ? (j + 1 - gz) * tDeltaZ : dz < 0 ? (gz - j) * tDeltaZ : Float.POSITIVE_INFINITY;
+
+        int steps = Math.abs(ti - i) + Math.abs(tj - j);
+        boolean leaving = true;     // todavía en las celdas opacas del propio observador
+        for (int k = 0; ; k++) {
+            if (i < 0 || j < 0 || i >= nx || j >= nz) return false;
+            if (opaque(j * nx + i, doorsBlock)) {
+                if (!leaving) return false;
+            } else {
+                leaving = false;
+            }
+            if (k == steps) return true;
+
+            if (tMaxX < tMaxZ) {
+                tMaxX += tDeltaX;
+                i += si;
+            } else {
+                tMaxZ += tDeltaZ;
+                j += sj;
+            }
+        }
+    }
+
+    /* ---------- acceso a celdas para precálculos del paquete (RoomPvs) ---------- */
+
+    int cols() {
+        return nx;
+    }
+
+    int rows() {
+        return nz;
+    }
+
+    float cellX(int i) {
+        return x0 + (i + 0.5f) * SIGHT_CELL;
+    }
+
+    float cellZ(int j) {
+        return z0 + (j + 0.5f) * SIGHT_CELL;
+    }
+
+    /**
+     * Muro fijo; las puertas no cuentan.
+     */
+    boolean isWall(int i, int j) {
+        return cells[j * nx + i] == WALL;
+    }
+
+    private boolean opaque(int c, boolean doorsBlock) {
+        short v = cells[c];
+        return v == WALL || (doorsBlock && v >= 0 && !doors[v].isOpen());
+    }
+}
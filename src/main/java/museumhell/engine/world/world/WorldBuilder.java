@@ -3,16 +3,22 @@ package museumhell.engine.world.world;
 import com.jme3.asset.AssetManager;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
 import museumhell.engine.world.builders.*;
 import museumhell.engine.world.levelgen.*;
 import museumhell.engine.world.levelgen.enums.ConnectionType;
 import museumhell.engine.world.levelgen.enums.Direction;
-import museumhell.engine.world.levelgen.generator.ConnectionGenerator;
+import museumhell.engine.world.levelgen.enums.StairOrientation;
 import museumhell.utils.media.AssetLoader;
+import museumhell.utils.GeoUtil;
 import museumhell.utils.GeoUtil.*;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Logger;
 
 import static museumhell.utils.ConstantManager.*;
 import static museumhell.utils.GeoUtil.opposite;
@@ -25,36 +31,62 @@ public class WorldBuilder {
     private final _2WallBuilder a2WallBuilder;
     private final _3DoorBuilder a4DoorBuilder;
     private final _4StairBuilder a5StairBuilder;
+    private final _7StaticBatcher a8StaticBatcher = new _7StaticBatcher();
+    private final _8LightBaker a9LightBaker;
+    private final Node worldNode = new Node("World");
+    private final Node staging = new Node("Staging");       // piezas estáticas de la planta en construcción
+    private final Node floorStaging = new Node("FloorStaging"); // parches de suelo: llevan la luz horneada
+    private final Node doorNode = new Node("Doors");   // puertas de la planta en curso, hasta batchFloor
+    private final List<Node> floorNodes = new ArrayList<>();
+    private final List<Node> shellNodes = new ArrayList<>();
     private MuseumLayout layoutRef;
     private final List<Door> doors = new ArrayList<>();
+    private final List<Door> movingDoors = new ArrayList<>();   // solo las que se están abriendo o cerrando
+    private DoorIndex doorIndex;
+    private final List<RoomIndex> roomIndex = new ArrayList<>();
+    private final List<List<Rect>> wallFootprints = new ArrayList<>();
+    private final List<SightGrid> sightGrids = new ArrayList<>();
+    private final List<RoomPvs> pvs = new ArrayList<>();
     private boolean doorOpen = false;
 
-    public WorldBuilder(AssetManager am, Node root, PhysicsSpace space, AssetLoader assetLoader) {
+    /**
+     * Los builders trabajan sobre un nodo propio sin enganchar a la escena, de modo que {@link #build} puede
+     * ejecutarse fuera del hilo de render. Las luces se dejan preparadas en el LightPlacer y los cuerpos físicos
+     * se registran después con {@link #registerPhysics}.
+     * <p>
+     * Suelos, techos, muros y escaleras van a un nodo de staging que al terminar cada planta se fusiona por
+     * material: los suelos en el nodo "Floor_i" y lo demás en su hijo "Shell_i", que es el que recibe los focos
+     * de techo. Puertas y cámaras quedan aparte porque se mueven o se quitan.
+     */
+    public WorldBuilder(AssetManager am, Node root, AssetLoader assetLoader) {
         this.a7LightPlacer = new _6LightPlacer(root);
-        this.a1FloorBuilder = new _1FloorBuilder(root, space, am, assetLoader);
-        this.a6CeilBuilder = new _5CeilBuilder0(root, space, am);
-        this.a2WallBuilder = new _2WallBuilder(am, root, space, assetLoader);
-        this.a4DoorBuilder = new _3DoorBuilder(am, space, root, doors, a2WallBuilder);
-        this.a5StairBuilder = new _4StairBuilder(am, space, root);
+        this.a1FloorBuilder = new _1FloorBuilder(floorStaging, am, assetLoader);
+        this.a6CeilBuilder = new _5CeilBuilder0(staging, am);
+        this.a2WallBuilder = new _2WallBuilder(am, staging, assetLoader);
+        this.a4DoorBuilder = new _3DoorBuilder(am, doorNode, doors, a2WallBuilder);
+        this.a5StairBuilder = new _4StairBuilder(am, staging);
+        this.a9LightBaker = new _8LightBaker(am);
     }
 
     public void build(MuseumLayout museum) {
+        build(museum, p -> {
+        });
+    }
+
+    /**
+     * Construye geometría y cuerpos de todas las plantas; {@code progress} recibe valores en [0, 1].
+     */
+    public void build(MuseumLayout museum, DoubleConsumer progress) {
+        long t0 = System.nanoTime();
         this.layoutRef = museum;
         float h = museum.floorHeight();
 
-        /* ---------- 1) conexiones por planta ---------- */
-        List<List<Connection>> floorConns = new ArrayList<>();
-        long seed = System.nanoTime();
-        for (LevelLayout lvl : museum.floors()) {
-            floorConns.add(ConnectionGenerator.build(lvl, seed++));
-        }
-
-        /* ---------- 2) planificación de escaleras ---------- */
-        _4StairBuilder.Plan plan = a5StairBuilder.plan(museum);
+        /* ---------- 1) plan de escaleras (ya calculado en el layout) ---------- */
+        StairPlan plan = museum.stairs();
 
-        /* ---------- 2.1) huecos‑base de escalera por planta ---------- */
+        /* ---------- 2) huecos‑base de escalera por planta ---------- */
         Map<Integer, List<Rect>> baseHoles = new HashMap<>();
-        for (var sp : plan.placements) {
+        for (var sp : plan.placements()) {
             Rect hole = computeHoleFromPlacement(sp, museum.floorHeight());
             baseHoles.computeIfAbsent(sp.floor(), k -> new ArrayList<>()).add(hole);
         }
@@ -62,9 +94,8 @@ public class WorldBuilder {
         /* ---------- 3) construir cada planta ---------- */
         for (int i = 0; i < museum.floors().size(); i++) {
             LevelLayout lvl = museum.floors().get(i);
-            List<Connection> cns = floorConns.get(i);
 
-            List<Rect> ceilHoles = plan.holes.getOrDefault(i, List.of());
+            List<Rect> ceilHoles = plan.holes().getOrDefault(i, List.of());
 
             /*– huecos que SÍ perforan el suelo (llegada escalera) */
             List<Rect> floorHoles = new ArrayList<>(ceilHoles);
@@ -73,22 +104,135 @@ public class WorldBuilder {
             /* planta0: nunca perforamos el suelo */
             if (i == 0) floorHoles = List.of();
 
-            buildSingleFloor(lvl, cns, museum.yOf(i), h, ceilHoles, floorHoles);
+            buildSingleFloor(museum.seed(), i, lvl, museum.yOf(i), h, ceilHoles, floorHoles);
+
+            /* ---------- 4) escaleras que salen de esta planta ---------- */
+            a5StairBuilder.place(museum, i);
+
+            /* ---------- 5) fusionar la geometría estática de la planta ---------- */
+            batchFloor(i);
+
+            /* ---------- 6) focos de techo horneados sobre el suelo; el resto los recibe en tiempo real ---------- */
+            Geometry baked = a9LightBaker.bake(museum.seed(), i, museum.yOf(i), a7LightPlacer.getCeilingSpots(i), floorHoles);
+            if (baked != null) getFloorNode(i).attachChild(baked);
+            progress.accept((i + 1.0) / museum.floors().size());
+        }
+        doorIndex = new DoorIndex(doors, museum.floors().size(), h);
+        for (LevelLayout lvl : museum.floors()) {
+            roomIndex.add(new RoomIndex(lvl.rooms()));
+        }
+        for (int i = 0; i < museum.floors().size(); i++) {
+            List<Door> floorDoors = new ArrayList<>();
+            for (Door d : doors) {
+                if (floorOf(d.getAccessPoint()) == i) floorDoors.add(d);
+            }
+            sightGrids.add(new SightGrid(wallFootprints.get(i), floorDoors));
+            RoomPvs floorPvs = new RoomPvs(museum.floors().get(i).rooms(), roomIndex.get(i), sightGrids.get(i));
+            pvs.add(floorPvs);
+            int n = museum.floors().get(i).rooms().size(), floorIdx = i;
+            Logger.getLogger(WorldBuilder.class.getName()).fine(() -> "PVS planta " + floorIdx + ": " + floorPvs.visiblePairs() + "/" + n * n + " parejas visibles (" + floorPvs.testedSegments() + " segmentos probados)");
+        }
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        Logger.getLogger(WorldBuilder.class.getName()).info(() -> "Mundo construido en " + ms + " ms (colisión " + GeoUtil.COLLISION_MODE + ")");
+    }
+
+    private void batchFloor(int floorIdx) {
+        Node floor = new Node("Floor_" + floorIdx);
+        for (Spatial s : new ArrayList<>(floorStaging.getChildren())) {
+            floor.attachChild(s);
+        }
+        Node shell = new Node("Shell_" + floorIdx);
+        for (Spatial s : new ArrayList<>(staging.getChildren())) {
+            shell.attachChild(s);
+        }
+        int floorPatches = a1FloorBuilder.takePatchCount();
+        int ceilPatches = a6CeilBuilder.takePatchCount();
+        wallFootprints.add(a2WallBuilder.takeFootprints());
+        // por separado: la fusión aplana todo el subárbol y el suelo no debe quedar bajo los focos de techo
+        _7StaticBatcher.Stats sf = a8StaticBatcher.batch(floor);
+        _7StaticBatcher.Stats ss = a8StaticBatcher.batch(shell);
+
+        // las puertas se mueven, así que no entran en el batching: van a un subnodo de la estructura
+        Node floorDoors = new Node("Doors_" + floorIdx);
+        for (Spatial d : new ArrayList<>(doorNode.getChildren())) {
+            floorDoors.attachChild(d);
+        }
+        shell.attachChild(floorDoors);
+        floor.attachChild(shell);
+        worldNode.attachChild(floor);
+        floorNodes.add(floor);
+        shellNodes.add(shell);
+        int before = sf.geometriesBefore() + ss.geometriesBefore(), after = sf.geometriesAfter() + ss.geometriesAfter();
+        int bodies = sf.bodiesBefore() + ss.bodiesBefore(), apart = sf.bodiesApart() + ss.bodiesApart();
+        Logger.getLogger(WorldBuilder.class.getName()).info(() -> "Planta " + floorIdx + ": " + floorPatches + " parches de suelo, " + ceilPatches + " de techo; " + before + " geometrías → " + after + " tras batching, " + bodies + " cuerpos estáticos → 2 compuestos" + (apart > 0 ? " + " + apart + " aparte" : ""));
+    }
+
+    /**
+     * Directorio donde guardar la luz horneada por semilla; sin él se hornea en cada carga.
+     */
+    public void setBakeCacheDir(Path dir) {
+        a9LightBaker.setCacheDir(dir);
+    }
+
+    /**
+     * Solo desde el hilo de render: registra el cuerpo compuesto de cada planta y los de las puertas.
+     */
+    public void registerPhysics(PhysicsSpace space) {
+        space.addAll(worldNode);
+    }
+
+    /**
+     * Solo desde el hilo de render: cuelga las luces de cada planta de su nodo y los focos de techo del nodo
+     * "Shell_i". Un foco de la planta 0 ya no se evalúa para la geometría de las demás; el log compara las
+     * evaluaciones luz×geometría por frame frente a tener todas las luces en el root.
+     */
+    public void attachLights() {
+        a7LightPlacer.attachStagedLights(this::getFloorNode, shellNodes::get);
+
+        long scoped = 0, geoms = 0, lights = 0;
+        for (int i = 0; i < floorNodes.size(); i++) {
+            Node floor = floorNodes.get(i), shell = shellNodes.get(i);
+            int g = countGeometries(floor), gs = countGeometries(shell);
+            scoped += (long) g * floor.getLocalLightList().size() + (long) gs * shell.getLocalLightList().size();
+            geoms += g;
+            lights += floor.getLocalLightList().size() + shell.getLocalLightList().size();
         }
+        long global = geoms * lights, perFrame = scoped;
+        Logger.getLogger(WorldBuilder.class.getName()).info(() -> "Luces por planta: " + perFrame + " evaluaciones luz×geometría por frame (antes " + global + " con todas en el root)");
+    }
+
+    private static int countGeometries(Spatial s) {
+        int[] n = {0};
+        s.depthFirstTraversal(sp -> {
+            if (sp instanceof Geometry) n[0]++;
+        });
+        return n[0];
+    }
+
+    /**
+     * Nodo de la planta {@code floorIdx}; cuelga de él todo lo que deba recibir las luces de esa planta. Los
+     * focos de techo solo llegan a su hijo "Shell_i" (muros, techos, escaleras y puertas).
+     */
+    public Node getFloorNode(int floorIdx) {
+        return floorNodes.get(floorIdx);
+    }
 
-        /* ---------- 4) colocar las escaleras ---------- */
-        a5StairBuilder.place(plan, museum);
+    /**
+     * Huellas en planta (XZ) de los muros de la planta {@code floorIdx}, con los huecos de puertas y aberturas ya
+     * recortados; la navegación de los guardias se construye con ellas.
+     */
+    public List<Rect> getWallFootprints(int floorIdx) {
+        return wallFootprints.get(floorIdx);
     }
 
-    private Rect computeHoleFromPlacement(_4StairBuilder.StairPlacement sp, float floorH) {
+    private Rect computeHoleFromPlacement(StairPlacement sp, float floorH) {
 
         int steps = (int) Math.ceil(floorH / STEP_H);
         float runD = steps * STEP_DEPTH;
         float hxPad = STAIR_WIDTH * 0.5f;
         float pad = 0.05f;
 
-        Enum<?> orient = (Enum<?>) sp.orientation();
-        boolean eastWest = orient.name().equals("EW");
+        boolean eastWest = sp.orientation() == StairOrientation.EW;
 
         if (eastWest) {
             return new Rect(sp.x() - hxPad, sp.x() + hxPad, sp.z() - STEP_DEPTH * 0.5f - pad, sp.z() + runD + pad);
@@ -99,38 +243,41 @@ public class WorldBuilder {
 
 
     public void update(float tpf) {
-        doors.forEach(d -> d.update(tpf));
+        for (int i = movingDoors.size() - 1; i >= 0; i--) {
+            if (!movingDoors.get(i).update(tpf)) {
+                // quitar sin desplazar: la última ocupa su hueco
+                movingDoors.set(i, movingDoors.get(movingDoors.size() - 1));
+                movingDoors.remove(movingDoors.size() - 1);
+            }
+        }
     }
 
     public void tryUseDoor(Vector3f playerPos) {
-        for (Door d : doors)
-            if (d.getAccessPoint().distance(playerPos) < 3.5f) {
-                d.toggle();
-                doorOpen = true;
-                return;
-            }
-        doorOpen = false;
+        Door d = nearestDoor(playerPos, 3.5f);
+        if (d == null) {
+            doorOpen = false;
+            return;
+        }
+        boolean wasMoving = d.isMoving();
+        d.toggle();
+        if (!wasMoving) movingDoors.add(d);
+        doorOpen = true;
     }
 
+    /**
+     * Consulta la rejilla de puertas de la planta; solo recorre las celdas a menos de {@code maxDist}.
+     */
     public Door nearestDoor(Vector3f p, float maxDist) {
-        Door best = null;
-        float best2 = maxDist * maxDist;
-        for (Door d : doors) {
-            float d2 = d.getAccessPoint().distanceSquared(p);
-            if (d2 < best2) {
-                best2 = d2;
-                best = d;
-            }
-        }
-        return best;
+        return doorIndex == null ? null : doorIndex.nearest(p, maxDist);
     }
 
-    private void buildSingleFloor(LevelLayout layout, List<Connection> conns, float y0, float h, List<Rect> ceilHoles, List<Rect> floorHoles) {
+    private void buildSingleFloor(long seed, int floorIdx, LevelLayout layout, float y0, float h, List<Rect> ceilHoles, List<Rect> floorHoles) {
 
         List<Room> rooms = layout.rooms();
+        List<Connection> conns = layout.conns();
 
         /* 1) iluminación */
-        a7LightPlacer.placeLights(rooms, y0, h);
+        a7LightPlacer.placeLights(seed, floorIdx, rooms, y0, h);
 
         /* 2) suelo y techo */
         for (Room r : rooms) {
@@ -234,20 +381,44 @@ public class WorldBuilder {
         return null;
     }
 
+    /**
+     * Sala de la planta que contiene {@code p}, según el {@link RoomIndex} de esa planta (paredes compartidas
+     * y pasillos resueltos con su regla de pertenencia). {@code null} fuera del museo.
+     */
     public Room whichRoom(Vector3f p) {
-        if (layoutRef == null) return null;
+        if (layoutRef == null || roomIndex.isEmpty()) return null;
 
-        float floorH = layoutRef.floorHeight();
-        int floorIdx = (int) Math.floor(p.y / floorH);
+        int floorIdx = floorOf(p);
+        if (floorIdx < 0 || floorIdx >= roomIndex.size()) return null;
 
-        if (floorIdx < 0 || floorIdx >= layoutRef.floors().size()) return null;
+        return roomIndex.get(floorIdx).locate(p.x, p.z);
+    }
 
-        for (Room r : layoutRef.floors().get(floorIdx).rooms()) {
-            boolean insideX = p.x >= r.x() && p.x <= r.x() + r.w();
-            boolean insideZ = p.z >= r.z() && p.z <= r.z() + r.h();
-            if (insideX && insideZ) return r;
-        }
-        return null;
+    /**
+     * Línea de visión entre dos puntos según la {@link SightGrid} de su planta (muros y puertas no abiertas).
+     * Entre plantas distintas siempre es {@code false}: los forjados tapan.
+     */
+    public boolean hasLineOfSight(Vector3f from, Vector3f to) {
+        int f = floorOf(from);
+        if (f != floorOf(to) || f < 0 || f >= sightGrids.size()) return false;
+        return sightGrids.get(f).clear(from.x, from.z, to.x, to.z);
+    }
+
+    /**
+     * Descarte en O(1) con el {@link RoomPvs} de la planta: {@code false} si las salas de ambos puntos no pueden
+     * verse de ningún modo (o están en plantas distintas). {@code true} no garantiza visión; falta
+     * {@link #hasLineOfSight}.
+     */
+    public boolean mayBeVisible(Vector3f from, Vector3f to) {
+        if (layoutRef == null || pvs.isEmpty()) return false;
+        int f = floorOf(from);
+        if (f != floorOf(to) || f < 0 || f >= pvs.size()) return false;
+        RoomIndex idx = roomIndex.get(f);
+        return pvs.get(f).mayBeVisible(idx.locate(from.x, from.z), idx.locate(to.x, to.z));
+    }
+
+    private int floorOf(Vector3f p) {
+        return (int) Math.floor(p.y / layoutRef.floorHeight());
     }
 
 
@@ -255,6 +426,10 @@ public class WorldBuilder {
         return Float.compare(r.w(), HOLE_W) == 0 || Float.compare(r.h(), HOLE_W) == 0;
     }
 
+    public Node getWorldNode() {
+        return worldNode;
+    }
+
     public _6LightPlacer getLightPlacer() {
         return a7LightPlacer;
     }
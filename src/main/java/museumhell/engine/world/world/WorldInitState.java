@@ -1,6 +1,7 @@
 package museumhell.engine.world.world;
 
 import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
 import com.jme3.app.state.BaseAppState;
 import com.jme3.asset.AssetManager;
 import com.jme3.bullet.BulletAppState;
@@ -8,48 +9,108 @@ import com.jme3.math.FastMath;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import museumhell.engine.world.levelgen.MuseumLayout;
-import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.levelgen.cache.LayoutCache;
 import museumhell.engine.world.levelgen.generator.MuseumGenerator;
 import museumhell.game.ai.SecurityCamera;
+import museumhell.ui.LoadingScreen;
 import museumhell.utils.media.AssetLoader;
 
-import java.util.List;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import static museumhell.utils.ConstantManager.WALL_T;
 
+/**
+ * Construye el mundo en dos fases: un hilo de carga genera el layout, la geometría y las formas de colisión
+ * sobre un nodo sin enganchar, y después una tarea encolada en el hilo de render lo engancha a la escena,
+ * registra la física y las luces y avisa a {@code onReady}.
+ */
 public class WorldInitState extends BaseAppState {
+    private final AssetManager assetManager;
+    private final Node rootNode;
+    private final BulletAppState physics;
+    private final AssetLoader visuals;
+    private final Spatial cameraBase;
+    private final Consumer<WorldInitState> onReady;
+
     private SecurityCamera securityCameraBuilder;
     private WorldBuilder worldBuilder;
     private MuseumLayout museumLayout;
+    private LoadingScreen loading;
+    private ExecutorService worker;
+
+    public WorldInitState(AssetManager assetManager, Node rootNode, BulletAppState physics, AssetLoader visuals, Spatial cameraBase, Consumer<WorldInitState> onReady) {
+        this.assetManager = assetManager;
+        this.rootNode = rootNode;
+        this.physics = physics;
+        this.visuals = visuals;
+        this.cameraBase = cameraBase;
+        this.onReady = onReady;
+    }
 
-    public WorldInitState(AssetManager assetManager, Node rootNode, BulletAppState physics, AssetLoader visuals, Spatial cameraBase) {
-        // 1) Generar layout
-        museumLayout = MuseumGenerator.generate(150, 125, 3, System.nanoTime());
+    @Override
+    protected void initialize(Application app) {
+        loading = new LoadingScreen();
+        getStateManager().attach(loading);
+
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "world-builder");
+            t.setDaemon(true);
+            return t;
+        });
+
+        CompletableFuture.runAsync(this::buildOffThread, worker).whenComplete((ok, err) -> app.enqueue(() -> {
+            if (err != null) {
+                ((SimpleApplication) app).handleError("Error construyendo el mundo", err);
+            } else {
+                attach();
+            }
+        }));
+    }
 
-        // 2) Construir mundo
-        worldBuilder = new WorldBuilder(assetManager, rootNode, physics.getPhysicsSpace(), visuals);
-        worldBuilder.build(museumLayout);
-
-        // 3) Inicializar beacons de cada sala
-        float floorH = museumLayout.floorHeight();
-        for (int i = 0; i < museumLayout.floors().size(); i++) {
-            float y0 = museumLayout.yOf(i);
-            List<Room> rooms = museumLayout.floors().get(i).rooms();
-            worldBuilder.getLightPlacer().initRoomBeacons(rooms, y0, floorH);
+    /* ---------- fase 1: hilo de carga (nada de esto toca la escena ni el PhysicsSpace) ---------- */
+    private void buildOffThread() {
+        // 1) Generar layout (con -Dmuseumhell.seed=N la semilla es fija y el layout sale de la caché en disco)
+        loading.setProgress(0f, "Generando museo");
+        Long fixedSeed = Long.getLong("museumhell.seed");
+        Path cacheRoot = Path.of(System.getProperty("user.home"), ".museumhell");
+        if (fixedSeed != null) {
+            museumLayout = new LayoutCache(cacheRoot.resolve("layouts")).loadOrGenerate(150, 125, 3, fixedSeed);
+        } else {
+            museumLayout = MuseumGenerator.generate(150, 125, 3, System.nanoTime());
         }
 
-        // 4) Preparar cámaras fijas
+        // 2) Construir mundo
+        loading.setProgress(0.1f, "Construyendo plantas");
+        worldBuilder = new WorldBuilder(assetManager, rootNode, visuals);
+        if (fixedSeed != null) worldBuilder.setBakeCacheDir(cacheRoot.resolve("bake"));
+        worldBuilder.build(museumLayout, p -> loading.setProgress(0.1f + 0.8f * (float) p, "Construyendo plantas"));
+
+        // 3) Preparar cámaras fijas (las balizas de alarma salen de un pool en _6LightPlacer)
+        loading.setProgress(0.9f, "Colocando cámaras");
         cameraBase.scale(0.5f);
         float baseExtrusion = 1.25f;
         float cameraExtrusion = baseExtrusion + WALL_T * 0.5f * FastMath.sqrt(2f);
-        securityCameraBuilder = new SecurityCamera(rootNode, cameraBase, cameraExtrusion);
+        securityCameraBuilder = new SecurityCamera(worldBuilder::getFloorNode, cameraBase, cameraExtrusion);
         securityCameraBuilder.build(museumLayout);
 
         worldBuilder.getLightPlacer().placeCameraLights(securityCameraBuilder.getCameraData());
+        loading.setProgress(1f, "Entrando");
     }
 
-    @Override
-    protected void initialize(Application app) {
+    /* ---------- fase 2: hilo de render ---------- */
+    private void attach() {
+        Node world = worldBuilder.getWorldNode();
+        rootNode.attachChild(world);
+        worldBuilder.registerPhysics(physics.getPhysicsSpace());
+        worldBuilder.attachLights();
+
+        getStateManager().detach(loading);
+        worker.shutdown();
+        onReady.accept(this);
     }
 
     public WorldBuilder getWorldBuilder() {
@@ -70,6 +131,7 @@ public class WorldInitState extends BaseAppState {
 
     @Override
     protected void cleanup(Application app) {
+        if (worker != null) worker.shutdownNow();
     }
 
     @Override
@@ -80,4 +142,3 @@ public class WorldInitState extends BaseAppState {
     protected void onDisable() {
     }
 }
-
@@ -13,6 +13,7 @@ import com.jme3.scene.Node;
 import com.jme3.asset.AssetManager;
 
 import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.world.LightBudgetState;
 import museumhell.engine.world.world.WorldBuilder;
 import museumhell.engine.world.levelgen.MuseumLayout;
 import museumhell.game.ai.EnemySystem;
@@ -33,6 +34,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static museumhell.utils.ConstantManager.LIGHT_BUDGET;
+
 public class GameSystemState extends BaseAppState {
     private final AssetLoader assetManager;
     private final AssetManager assets;
@@ -65,7 +68,7 @@ public class GameSystemState extends BaseAppState {
         Camera camera = sApp.getCamera();
 
         // 1) Cámaras de seguridad
-        getStateManager().attach(new SecurityCamSystem(camBuilder, player, rootNode, world.getLightPlacer(), audio));
+        getStateManager().attach(new SecurityCamSystem(camBuilder, player, world, rootNode, world.getLightPlacer(), audio));
 
         // 2) Sistema de input
         InputSystem input = new InputSystem(im, fc, physics);
@@ -82,7 +85,7 @@ public class GameSystemState extends BaseAppState {
         getStateManager().attach(prompt);
 
         // 4) LootSystem + distribución de loot
-        lootSystem = new LootSystem(assets, rootNode, physics.getPhysicsSpace(), player, hud, layout.floorHeight());
+        lootSystem = new LootSystem(assets, world, physics.getPhysicsSpace(), player, hud, layout.floorHeight());
         getStateManager().attach(lootSystem);
         input.setLootManager(lootSystem);
 
@@ -103,7 +106,7 @@ public class GameSystemState extends BaseAppState {
 
         // 6) Sistema de guardias
         BulletAppState bullet = getStateManager().getState(BulletAppState.class);
-        getStateManager().attach(new EnemySystem(assetManager, bullet, rootNode, layout, world, player, audio));
+        getStateManager().attach(new EnemySystem(assetManager, bullet.getPhysicsSpace(), rootNode, layout, world, player, audio));
 
         // 7) MoveEffectState
         getStateManager().attach(new MoveEffectState(player, input, audio, hud, camera, world.getLightPlacer()));
@@ -112,6 +115,9 @@ public class GameSystemState extends BaseAppState {
         Vector3f initEye = player.getLocation().add(0, 1f, 0).addLocal(camera.getDirection().mult(-0.25f));
         world.getLightPlacer().initFlashlight(initEye, camera.getDirection().clone());
 
+        // 9) Presupuesto de focos encendidos (-Dmuseumhell.lightBudget=N)
+        getStateManager().attach(new LightBudgetState(world, layout, LIGHT_BUDGET));
+
     }
 
     @Override
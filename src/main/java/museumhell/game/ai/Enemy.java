@@ -3,8 +3,6 @@ package museumhell.game.ai;
 
 import com.jme3.anim.AnimComposer;
 import com.jme3.bullet.PhysicsSpace;
-import com.jme3.bullet.collision.PhysicsCollisionObject;
-import com.jme3.bullet.collision.PhysicsRayTestResult;
 import com.jme3.bullet.collision.shapes.CapsuleCollisionShape;
 import com.jme3.bullet.control.CharacterControl;
 import com.jme3.math.FastMath;
@@ -15,6 +13,8 @@ import com.jme3.scene.Spatial;
 import museumhell.engine.world.levelgen.Room;
 import museumhell.engine.world.levelgen.Door;
 import museumhell.engine.world.world.WorldBuilder;
+import museumhell.game.ai.nav.RoomGraph;
+import museumhell.game.ai.nav.StairGraph;
 import museumhell.game.player.PlayerController;
 import museumhell.utils.media.AssetLoader;
 import museumhell.utils.media.AudioLoader;
@@ -26,31 +26,61 @@ import java.util.Random;
 import java.util.Set;
 import java.util.function.Supplier;
 
+import static museumhell.utils.ConstantManager.ENEMY_LOD_COARSE_TICK;
+import static museumhell.utils.ConstantManager.ENEMY_LOD_REDUCED_TICK;
+import static museumhell.utils.ConstantManager.ENEMY_PURSUIT_TIME;
+
 public class Enemy extends Node {
     private enum State {WANDER, CHASE}
 
+    /**
+     * Nivel de detalle de la IA, lo fija EnemySystem cada frame según la distancia al jugador:
+     * <ul>
+     *   <li>{@code FULL}: percepción, evasión, pasos y giro suavizado cada frame,</li>
+     *   <li>{@code REDUCED}: lo mismo cada {@code ENEMY_LOD_REDUCED_TICK} s; entre medias la física sigue
+     *       aplicando la última dirección, así que el movimiento no se nota,</li>
+     *   <li>{@code COARSE}: fuera de la física y sin animar; cada {@code ENEMY_LOD_COARSE_TICK} s avanza por su
+     *       ruta de patrulla (puntos de la NavGrid, ya transitables) lo que habría andado en ese tiempo.</li>
+     * </ul>
+     */
+    public enum Lod {FULL, REDUCED, COARSE}
+
     private State state = State.WANDER;
+    private Lod lod = Lod.FULL;
+    private float lodTimer = 0f;
 
     private final CharacterControl control;
     private final PhysicsSpace space;
     private final PlayerController player;
     private final Spatial model;
     private final WorldBuilder world;
+    private final StairGraph stairs;
     private AnimComposer composer;
     private String lastAnim = "";
 
-    private final Supplier<List<Vector3f>> requestNewPath;
+    private Supplier<List<Vector3f>> requestNewPath;
+    private PatrolPlanner planner;
     private Room currentRoomRef;
+    private int floor;
 
     public Room currentRoom() {
         return currentRoomRef;
     }
 
+    public int getFloor() {
+        return floor;
+    }
+
     private static final float DETECT_RANGE = 15f;
     private static final float COS_HALF_FOV = FastMath.cos(FastMath.DEG_TO_RAD * 22.5f);
     private static final float WANDER_SPEED = 0.05f;
     private static final float CHASE_SPEED = 0.125f;
     private static final float POINT_TOL = 0.25f;
+    private static final float CHASE_REPATH = 0.3f;
+    private static final float PHYSICS_HZ = 60f;    // walkDirection es desplazamiento por paso de física
+    private static final float STAIR_REACH = 2f;    // a esta distancia del portal empieza el tramo
+    private static final float CLIMB_TIMEOUT = 6f;
+    private static final float DOOR_AHEAD = 1.5f;   // metros que se pasa del portal hacia la sala siguiente
 
     private final List<Vector3f> patrolPoints = new ArrayList<>();
     private int patrolIndex = 0;
@@ -68,7 +98,17 @@ public class Enemy extends Node {
     private Quaternion[] rotSamples;
     private final Vector3f candDir = new Vector3f();
     private final Vector3f scratchVec = new Vector3f();
-    private final Vector3f scratchEnd = new Vector3f();
+    private final List<Vector3f> chasePath = new ArrayList<>();
+    private int chaseIndex = 0;
+    private float chaseRepath = 0f;
+    private final Vector3f chaseGoal = new Vector3f();
+    private float reach = POINT_TOL;                // tolerancia de llegada del tick en curso
+    private int stairPortal = -1;                   // portal hacia el que va la persecución entre plantas
+    private boolean climbing = false;
+    private final Vector3f climbTarget = new Vector3f();
+    private float climbTime = 0f;
+    private float pursuit = 0f;                     // memoria tras perder de vista al jugador en otra planta
+    private int seenFloor = -1;
 
     private final AudioLoader audio;
     private float stepTime = 0f;
@@ -82,13 +122,16 @@ public class Enemy extends Node {
     private final Quaternion desiredQuat = new Quaternion();
     private final Quaternion offsetQuat = new Quaternion().fromAngleAxis(FastMath.HALF_PI, Vector3f.UNIT_Y);
 
-    public Enemy(AssetLoader am, PhysicsSpace space, PlayerController player, WorldBuilder world, Room room, float baseY, Node rootNode, AudioLoader audio, Supplier<List<Vector3f>> pathSupplier) {
+    /**
+     * Crea el guardia sin colocarlo: EnemySystem lo reutiliza entre apariciones con {@link #spawn} y {@link #despawn}.
+     */
+    public Enemy(AssetLoader am, PhysicsSpace space, PlayerController player, WorldBuilder world, StairGraph stairs, AudioLoader audio) {
         super("Enemy");
         this.space = space;
         this.player = player;
         this.world = world;
+        this.stairs = stairs;
         this.audio = audio;
-        this.requestNewPath = pathSupplier;
 
         int samples = 16;
         rotSamples = new Quaternion[samples];
@@ -116,15 +159,79 @@ public class Enemy extends Node {
         control.setGravity(30);
         control.setFallSpeed(20);
         addControl(control);
+    }
+
+    /**
+     * Coloca el guardia en el centro de {@code room}, lo cuelga de {@code parent} (el nodo de su planta, para
+     * recibir sus luces) y lo registra en la física. Limpia todo el estado de la aparición anterior.
+     * {@code planner} es el de la planta: su rejilla y su grafo de salas guían la persecución.
+     */
+    public void spawn(Node parent, int floor, Room room, float baseY, PatrolPlanner planner, Supplier<List<Vector3f>> pathSupplier) {
+        this.floor = floor;
+        this.planner = planner;
+        this.requestNewPath = pathSupplier;
+        currentRoomRef = room;
+        state = State.WANDER;
+        prevState = null;
+        patrolPoints.clear();
+        patrolIndex = 0;
+        patrolFinished = false;
+        chasePath.clear();
+        chaseIndex = 0;
+        chaseRepath = 0f;
+        stairPortal = -1;
+        climbing = false;
+        pursuit = 0f;
+        seenFloor = -1;
+        openingDoors.clear();
+        avoiding = false;
+        avoidDirSign = 0;
+        stuckTimer = 0f;
+        stepTime = 0f;
+        lastStepCount = 0;
+        lod = Lod.FULL;
+        lodTimer = 0f;
+        composer.setEnabled(true);
+
+        Vector3f at = room.center3f(baseY + 0.5f);
+        setLocalTranslation(at);
+        control.setPhysicsLocation(at);
+        control.setWalkDirection(Vector3f.ZERO);
+        lastPos.set(at);
+
         space.add(control);
-        rootNode.attachChild(this);
+        parent.attachChild(this);
+    }
 
-        Vector3f spawn = room.center3f(baseY + 0.5f);
-        setLocalTranslation(spawn);
-        control.setPhysicsLocation(spawn);
-        lastPos.set(spawn);
+    /**
+     * Saca el guardia de la escena y de la física; queda listo para otro {@link #spawn}.
+     */
+    public void despawn() {
+        control.setWalkDirection(Vector3f.ZERO);
+        if (lod == Lod.COARSE) control.setEnabled(true);
+        space.remove(control);
+        removeFromParent();
+    }
+
+
+    /**
+     * Pasa el guardia a otra planta tras bajar o subir una escalera: cuelga del nodo de la nueva planta y usa su
+     * planner. La ruta de patrulla de la planta anterior se descarta.
+     */
+    public void changeFloor(int floor, Node parent, PatrolPlanner planner) {
+        this.floor = floor;
+        this.planner = planner;
+        parent.attachChild(this);
+        patrolPoints.clear();
+        patrolIndex = 0;
+        chasePath.clear();
+        chaseIndex = 0;
+        chaseRepath = 0f;
     }
 
+    public boolean isChasing() {
+        return state == State.CHASE;
+    }
 
     public void setPatrolPoints(List<Vector3f> pts) {
         patrolPoints.clear();
@@ -137,7 +244,74 @@ public class Enemy extends Node {
         return patrolFinished;
     }
 
+    public Lod getLod() {
+        return lod;
+    }
+
+    /**
+     * Cambia de nivel de detalle. En {@code COARSE} el control de la cápsula se desactiva: sale de la física y deja
+     * de copiar su posición al nodo; al volver se reactiva en la posición actual. El primer tick de un nivel
+     * reducido se reparte al azar para que no piensen todos a la vez.
+     */
+    public void setLod(Lod next) {
+        if (next == lod) return;
+
+        if (lod == Lod.COARSE) {
+            Vector3f at = getLocalTranslation();
+            control.setPhysicsLocation(at);
+            control.setWalkDirection(Vector3f.ZERO);
+            control.setEnabled(true);
+            composer.setEnabled(true);
+            lastPos.set(at);
+            stuckTimer = 0f;
+        }
+        if (next == Lod.COARSE) {
+            control.setWalkDirection(Vector3f.ZERO);
+            control.setEnabled(false);
+            composer.setEnabled(false);
+            state = State.WANDER;
+            chasePath.clear();
+            climbing = false;
+            stairPortal = -1;
+            avoiding = false;
+            openingDoors.clear();
+        }
+
+        lodTimer = switch (next) {
+            case FULL -> 0f;
+            case REDUCED -> rnd.nextFloat() * ENEMY_LOD_REDUCED_TICK;
+            case COARSE -> rnd.nextFloat() * ENEMY_LOD_COARSE_TICK;
+        };
+        lod = next;
+    }
+
     public void update(float tpf) {
+        switch (lod) {
+            case FULL -> think(tpf);
+            case REDUCED -> {
+                lodTimer += tpf;
+                if (lodTimer >= ENEMY_LOD_REDUCED_TICK) {
+                    think(lodTimer);
+                    lodTimer = 0f;
+                }
+                setLocalTranslation(control.getPhysicsLocation());
+            }
+            case COARSE -> {
+                lodTimer += tpf;
+                if (lodTimer >= ENEMY_LOD_COARSE_TICK) {
+                    advanceCoarse(lodTimer);
+                    lodTimer = 0f;
+                }
+            }
+        }
+    }
+
+    /**
+     * Un paso completo de IA que cubre {@code dt} segundos (un frame en {@code FULL}, varios en {@code REDUCED}).
+     */
+    private void think(float dt) {
+        float speed = state == State.CHASE ? CHASE_SPEED : WANDER_SPEED;
+        reach = Math.max(POINT_TOL, speed * PHYSICS_HZ * dt);
         currentRoomRef = world.whichRoom(control.getPhysicsLocation());
         Vector3f pos = control.getPhysicsLocation();
 
@@ -152,13 +326,22 @@ public class Enemy extends Node {
             openingDoors.remove(d);
         }
 
-        // 2) State transition
+        // 2) State transition: si el jugador cambia de planta, la persecución sigue un rato por las escaleras
         boolean seesPlayer = canSee(pos);
-        State newState = seesPlayer ? State.CHASE : (state == State.CHASE ? State.WANDER : state);
+        if (seesPlayer) {
+            pursuit = ENEMY_PURSUIT_TIME;
+            seenFloor = floor;
+        } else {
+            pursuit -= dt;
+        }
+        boolean elsewhere = stairs.floorAt(player.getLocation().y) != floor || floor != seenFloor;
+        boolean pursuing = state == State.CHASE && (climbing || (pursuit > 0f && elsewhere));
+        State newState = (seesPlayer || pursuing) ? State.CHASE : (state == State.CHASE ? State.WANDER : state);
 
         if (newState != state) {
             stepTime = 0f;
             lastStepCount = 0;
+            chaseRepath = 0f;
         }
         state = newState;
 
@@ -172,14 +355,14 @@ public class Enemy extends Node {
         }
 
         // 3) Comportamiento
-        if (state == State.CHASE) chase(pos);
+        if (state == State.CHASE) chase(pos, dt);
         else wander(pos);
 
         // 4) Animación de caminar + audio de pasos:
         playAnimationIfChanged("ArmatureAction");
 
         if ("ArmatureAction".equals(lastAnim)) {
-            stepTime += tpf;
+            stepTime += dt;
             float interval = (state == State.CHASE ? CHASE_STEP_INTERVAL : STEP_INTERVAL);
             int stepCount = (int) (stepTime / interval);
             if (stepCount > lastStepCount) {
@@ -194,9 +377,11 @@ public class Enemy extends Node {
             lastStepCount = 0;
         }
 
-        // 5) Avoidance & stuck detection
-        avoidObstacles(pos);
-        detectStuck(pos, tpf);
+        // 5) Avoidance & stuck detection (en la escalera no: el campo de holgura de la planta no la cubre)
+        if (!climbing) {
+            avoidObstacles(pos);
+            detectStuck(pos, dt);
+        }
 
         // 6) Posicionamiento y rotación
         setLocalTranslation(control.getPhysicsLocation());
@@ -205,11 +390,40 @@ public class Enemy extends Node {
             lookQuat.lookAt(lastDir.normalizeLocal(), Vector3f.UNIT_Y);
             desiredQuat.set(lookQuat).multLocal(offsetQuat);
             currentQuat.set(model.getLocalRotation());
-            currentQuat.slerp(desiredQuat, tpf * 5f);
+            currentQuat.slerp(desiredQuat, Math.min(1f, dt * 5f));
             model.setLocalRotation(currentQuat);
         }
     }
 
+    /**
+     * Avance sin física de {@code COARSE}: recorre la ruta de patrulla a la velocidad de paseo durante {@code dt}
+     * segundos, conservando la altura.
+     */
+    private void advanceCoarse(float dt) {
+        if (patrolIndex >= patrolPoints.size()) setPatrolPoints(requestNewPath.get());
+
+        Vector3f p = scratchVec.set(getLocalTranslation());
+        float budget = WANDER_SPEED * PHYSICS_HZ * dt;
+        while (budget > 0f && patrolIndex < patrolPoints.size()) {
+            Vector3f tgt = patrolPoints.get(patrolIndex);
+            float dx = tgt.x - p.x, dz = tgt.z - p.z;
+            float d = FastMath.sqrt(dx * dx + dz * dz);
+            if (d <= budget) {
+                p.x = tgt.x;
+                p.z = tgt.z;
+                budget -= d;
+                patrolIndex++;
+            } else {
+                p.x += dx / d * budget;
+                p.z += dz / d * budget;
+                lastDir.set(dx, 0f, dz).normalizeLocal();
+                budget = 0f;
+            }
+        }
+        setLocalTranslation(p);
+        currentRoomRef = world.whichRoom(p);
+    }
+
     private float getVolume() {
         Vector3f e = this.getWorldTranslation();
         Vector3f j = player.getLocation();
@@ -237,8 +451,91 @@ public class Enemy extends Node {
     }
 
 
-    private void chase(Vector3f p) {
-        Vector3f dir = player.getLocation().subtract(p).setY(0).normalizeLocal();
+    /**
+     * Sigue un camino A* que se recalcula cada {@code CHASE_REPATH} s con los buffers de la rejilla. En la misma
+     * planta, si el jugador está a más de una sala, la tabla del grafo da la arista por la que salir de la actual
+     * y el destino es un punto justo detrás de ese paso, ya en la sala vecina. Si está en otra planta, el
+     * {@link StairGraph} da la escalera por la que ir: el A* llega a su portal y desde ahí se sube o baja en
+     * línea recta hasta el otro extremo; si ninguna escalera lleva hasta él, el A* (que ignora la altura) lo
+     * sigue por esta planta hasta quedar debajo o encima. Solo sin camino en la rejilla va en línea recta hacia él.
+     */
+    private void chase(Vector3f p, float tpf) {
+        if (climbing) {
+            climb(p, tpf);
+            return;
+        }
+        chaseRepath -= tpf;
+        if (chaseRepath <= 0f || chaseIndex >= chasePath.size()) {
+            chaseRepath = CHASE_REPATH;
+            Vector3f goal = player.getLocation();
+            RoomGraph graph = planner.getGraph();
+            Room target = world.whichRoom(goal);
+            int targetFloor = stairs.floorAt(goal.y);
+            stairPortal = -1;
+            if (targetFloor != floor) {
+                stairPortal = stairs.nextPortal(floor, currentRoomRef, targetFloor, target);
+                if (stairPortal >= 0) goal = stairs.point(stairPortal);
+            } else {
+                int here = graph.id(currentRoomRef), there = graph.id(target);
+                if (here >= 0 && there >= 0 && here != there) {
+                    int edge = graph.nextEdge(here, there);
+                    if (edge >= 0 && graph.edgeTarget(edge) != there) goal = pastPortal(graph, edge, p.y);
+                }
+            }
+            chaseIndex = planner.getNav().findPath(p, goal, chasePath) ? 1 : 0;
+            if (chaseIndex == 0) chasePath.clear();
+        }
+
+        if (stairPortal >= 0) {
+            Vector3f portal = stairs.point(stairPortal);
+            float dx = portal.x - p.x, dz = portal.z - p.z;
+            if (dx * dx + dz * dz < STAIR_REACH * STAIR_REACH) {
+                climbing = true;
+                climbTime = 0f;
+                climbTarget.set(stairs.point(stairs.partner(stairPortal)));
+                stairPortal = -1;
+                return;
+            }
+        }
+
+        Vector3f tgt = chaseIndex < chasePath.size() ? chasePath.get(chaseIndex)
+                : stairPortal >= 0 ? stairs.point(stairPortal) : player.getLocation();
+        Vector3f dir = tgt.subtract(p).setY(0);
+        if (dir.lengthSquared() < reach * reach && chaseIndex < chasePath.size()) {
+            chaseIndex++;
+            return;
+        }
+        dir.normalizeLocal();
+        lastDir.set(dir);
+        control.setWalkDirection(dir.mult(CHASE_SPEED));
+    }
+
+    /**
+     * Punto a {@code DOOR_AHEAD} m del paso de la arista {@code edge}, hacia el centro de la sala a la que lleva.
+     */
+    private Vector3f pastPortal(RoomGraph graph, int edge, float y) {
+        Room next = graph.room(graph.edgeTarget(edge));
+        float px = graph.portalX(edge), pz = graph.portalZ(edge);
+        float dx = next.x() + next.w() * 0.5f - px, dz = next.z() + next.h() * 0.5f - pz;
+        float len = FastMath.sqrt(dx * dx + dz * dz);
+        float k = len > DOOR_AHEAD ? DOOR_AHEAD / len : 1f;
+        return chaseGoal.set(px + dx * k, y, pz + dz * k);
+    }
+
+    /**
+     * Tramo de escalera en línea recta hasta el portal del otro extremo; EnemySystem cambia la planta del guardia
+     * en cuanto su altura pasa a la siguiente. Si no llega en {@code CLIMB_TIMEOUT} s se abandona y se replanifica.
+     */
+    private void climb(Vector3f p, float tpf) {
+        climbTime += tpf;
+        Vector3f dir = climbTarget.subtract(p).setY(0);
+        if (dir.lengthSquared() < reach * reach || climbTime > CLIMB_TIMEOUT) {
+            climbing = false;
+            chasePath.clear();
+            chaseRepath = 0f;
+            return;
+        }
+        dir.normalizeLocal();
         lastDir.set(dir);
         control.setWalkDirection(dir.mult(CHASE_SPEED));
     }
@@ -258,7 +555,7 @@ public class Enemy extends Node {
         Vector3f tgt = patrolPoints.get(patrolIndex);
         Vector3f d = tgt.subtract(p).setY(0);
 
-        if (d.length() < POINT_TOL) {
+        if (d.length() < reach) {
             patrolIndex++;
             return;
         }
@@ -312,17 +609,13 @@ public class Enemy extends Node {
         stuckTimer = 0f;
     }
 
+    /**
+     * Distancia libre en {@code dir} según el campo de holgura de la planta: unas pocas lecturas de array en vez
+     * de un rayTest de Bullet. Las puertas no están en el campo, pero no hace falta consultarlas: {@link #update}
+     * no deja avanzar al guardia hasta que la puerta cercana está abierta.
+     */
     private float measureClearance(Vector3f origin, Vector3f dir, float maxDist) {
-        scratchEnd.set(dir).multLocal(maxDist).addLocal(origin);
-        List<PhysicsRayTestResult> results = space.rayTest(origin, scratchEnd);
-
-        float minFrac = 1f;
-        for (PhysicsRayTestResult rr : results) {
-            if (rr.getHitFraction() < minFrac && !(rr.getCollisionObject() instanceof CharacterControl)) {
-                minFrac = rr.getHitFraction();
-            }
-        }
-        return minFrac * maxDist;
+        return planner.getNav().castClearance(origin, dir, maxDist);
     }
 
     private void detectStuck(Vector3f pos, float tpf) {
@@ -346,8 +639,13 @@ public class Enemy extends Node {
 
 
     private boolean canSee(Vector3f enemyPos) {
-        // 1) Vector desde el enemigo hasta el jugador
+        // 0) Descarte por salas con el PVS de la planta, antes de cualquier cálculo
         Vector3f playerPos = player.getLocation();
+        if (!world.mayBeVisible(enemyPos, playerPos)) {
+            return false;
+        }
+
+        // 1) Vector desde el enemigo hasta el jugador
         scratchVec.set(playerPos).subtractLocal(enemyPos);
 
         // 2) Comprobación de rango usando distancia al cuadrado (sin sqrt)
@@ -363,31 +661,8 @@ public class Enemy extends Node {
             return false;
         }
 
-        // 4) Ray-cast hasta la posición exacta del jugador
-        List<PhysicsRayTestResult> results = space.rayTest(enemyPos, playerPos);
-
-        // 5) Buscamos la intersección más cercana que NO sea el propio CharacterControl del enemigo
-        PhysicsCollisionObject closest = getCollisionObject(results);
-
-        // 6) Vemos al jugador si lo primero que choca es SU CharacterControl
-        return closest == player.getCharacterControl();
-    }
-
-    private PhysicsCollisionObject getCollisionObject(List<PhysicsRayTestResult> results) {
-        PhysicsCollisionObject closest = null;
-        float minFrac = Float.MAX_VALUE;
-        for (PhysicsRayTestResult rr : results) {
-            float frac = rr.getHitFraction();
-            PhysicsCollisionObject obj = rr.getCollisionObject();
-            if (obj == this.control) {
-                continue;
-            }
-            if (frac < minFrac) {
-                minFrac = frac;
-                closest = obj;
-            }
-        }
-        return closest;
+        // 4) Línea de visión sobre la rejilla de opacidad de la planta (muros y puertas cerradas)
+        return world.hasLineOfSight(enemyPos, playerPos);
     }
 
 
@@ -2,25 +2,46 @@ package museumhell.game.ai;
 
 import com.jme3.app.Application;
 import com.jme3.app.state.BaseAppState;
-import com.jme3.bullet.BulletAppState;
 import com.jme3.bullet.PhysicsSpace;
-import com.jme3.bullet.control.CharacterControl;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
 import museumhell.engine.world.levelgen.MuseumLayout;
 import museumhell.engine.world.levelgen.Room;
 import museumhell.engine.world.world.WorldBuilder;
+import museumhell.game.ai.nav.NavGrid;
+import museumhell.game.ai.nav.RoomGraph;
+import museumhell.game.ai.nav.StairGraph;
 import museumhell.game.player.PlayerController;
 import museumhell.utils.media.AssetLoader;
 import museumhell.utils.media.AudioLoader;
 
 import java.util.*;
 import java.util.function.Supplier;
-
+import java.util.stream.IntStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static museumhell.utils.ConstantManager.*;
+
+/**
+ * Gestiona todos los guardias del museo:
+ * <ul>
+ *   <li>aparece uno cada {@code ENEMY_SPAWN_INTERVAL} s hasta llegar al tope total y por planta,</li>
+ *   <li>los guardias retirados vuelven a un pool y se reutilizan (modelo, AnimComposer y cápsula incluidos),</li>
+ *   <li>hay un único PatrolPlanner por planta (con su NavGrid), compartido por todos los guardias de esa planta,</li>
+ *   <li>un {@link StairGraph} une los grafos de salas de las plantas: un guardia que persigue al jugador a otra
+ *       planta toma la escalera que indica y, al llegar, pasa a la planta nueva (nodo, planner y cuenta).</li>
+ * </ul>
+ * Un guardia que pasa {@code ENEMY_LOST_TIMEOUT} s fuera de cualquier sala (se ha caído del mapa) se retira.
+ * Cada frame se fija el {@link Enemy.Lod} de cada guardia: completo cerca del jugador, reducido en su planta y
+ * simulación gruesa sin física en las demás, así que el coste crece con los guardias cercanos y no con el total.
+ * Con logging FINE se registra cada pocos segundos el coste medio del bucle de actualización.
+ */
 public class EnemySystem extends BaseAppState {
+    private static final Logger LOG = Logger.getLogger(EnemySystem.class.getName());
+
     private final AssetLoader am;
     private final AudioLoader audio;
-    private PatrolPlanner planner;
     private final PhysicsSpace space;
     private final Node rootNode;
     private final MuseumLayout layout;
@@ -28,56 +49,188 @@ public class EnemySystem extends BaseAppState {
     private final PlayerController player;
     private final Random rnd = new Random();
 
-    private Enemy enemy;
-    private Room spawnRoom;
-    private int spawnFloorIdx;
+    private final PatrolPlanner[] planners;
+    private final StairGraph stairs;
+    private final int[] perFloor;
+    private final List<Enemy> active = new ArrayList<>();
+    private final Deque<Enemy> pool = new ArrayDeque<>();
+    private final Map<Enemy, Float> lostTime = new IdentityHashMap<>();
+
+    private int cap = ENEMY_CAP;
+    private int capPerFloor = ENEMY_CAP_PER_FLOOR;
     private float timer = 0f;
 
-    public EnemySystem(AssetLoader am, BulletAppState bullet, Node rootNode, MuseumLayout layout, WorldBuilder world, PlayerController player, AudioLoader audio) {
+    private long statNanos;
+    private int statFrames;
+    private float statTimer;
+    private final int[] lodCount = new int[Enemy.Lod.values().length];
+
+    public EnemySystem(AssetLoader am, PhysicsSpace space, Node rootNode, MuseumLayout layout, WorldBuilder world, PlayerController player, AudioLoader audio) {
         this.am = am;
-        this.space = bullet.getPhysicsSpace();
+        this.space = space;
         this.rootNode = rootNode;
         this.layout = layout;
         this.world = world;
         this.player = player;
         this.audio = audio;
+        this.perFloor = new int[layout.floors().size()];
+
+        // rejilla, grafo y tabla de saltos de cada planta: independientes entre sí, se construyen en paralelo
+        long t0 = System.nanoTime();
+        this.planners = IntStream.range(0, layout.floors().size()).parallel()
+                .mapToObj(f -> new PatrolPlanner(layout, f, world.getWallFootprints(f)))
+                .toArray(PatrolPlanner[]::new);
+        this.stairs = new StairGraph(layout,
+                Arrays.stream(planners).map(PatrolPlanner::getGraph).toArray(RoomGraph[]::new),
+                Arrays.stream(planners).map(PatrolPlanner::getNav).toArray(NavGrid[]::new));
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        LOG.info(() -> "Navegación de " + planners.length + " plantas y " + stairs.portalCount() + " portales de escalera preparada en " + ms + " ms");
     }
 
     @Override
     public void update(float tpf) {
-        if (enemy == null) {
-            timer += tpf;
-            if (timer >= 5f) {
-                spawnEnemy();
-            }
-        } else {
-            enemy.update(tpf);
+        // 1) aparición escalonada hasta el tope
+        timer += tpf;
+        if (timer >= ENEMY_SPAWN_INTERVAL && active.size() < cap) {
+            timer = 0f;
+            spawnEnemy();
+        }
 
+        // 2) bucle de actualización de todos los guardias, cada uno a la frecuencia de su nivel de detalle
+        long t0 = System.nanoTime();
+        Vector3f p = player.getLocation();
+        int playerFloor = (int) Math.floor(p.y / layout.floorHeight());
+        Arrays.fill(lodCount, 0);
+        for (int i = active.size() - 1; i >= 0; i--) {
+            Enemy e = active.get(i);
+            e.setLod(lodFor(e, p, playerFloor));
+            lodCount[e.getLod().ordinal()]++;
+            e.update(tpf);
+
+            int f = stairs.floorAt(e.getWorldTranslation().y);
+            if (f != e.getFloor() && f >= 0 && f < planners.length) moveToFloor(e, f);
+
+            if (e.currentRoom() == null) {
+                float lost = lostTime.merge(e, tpf, Float::sum);
+                if (lost > ENEMY_LOST_TIMEOUT) despawn(i);
+            } else {
+                lostTime.remove(e);
+            }
         }
+        logCost(System.nanoTime() - t0, tpf);
+    }
+
+    /**
+     * Nivel de detalle según planta y distancia, con {@code ENEMY_LOD_MARGIN} de histéresis: quien ya está en
+     * {@code FULL} no baja hasta alejarse ese margen de más.
+     */
+    private Enemy.Lod lodFor(Enemy e, Vector3f p, int playerFloor) {
+        if (e.isChasing()) return Enemy.Lod.FULL;
+        if (e.getFloor() != playerFloor) return Enemy.Lod.COARSE;
+        float near = e.getLod() == Enemy.Lod.FULL ? ENEMY_LOD_NEAR + ENEMY_LOD_MARGIN : ENEMY_LOD_NEAR;
+        return e.getWorldTranslation().distanceSquared(p) <= near * near ? Enemy.Lod.FULL : Enemy.Lod.REDUCED;
     }
 
     private void spawnEnemy() {
+        // 1) planta con hueco y sala de aparición distinta de la del jugador
+        List<Integer> floors = new ArrayList<>();
+        for (int f = 0; f < perFloor.length; f++) {
+            if (perFloor[f] < capPerFloor) floors.add(f);
+        }
+        if (floors.isEmpty()) return;
+        int floorIdx = floors.get(rnd.nextInt(floors.size()));
+
+        List<Room> rooms = layout.floors().get(floorIdx).rooms();
+        Room playerRoom = world.whichRoom(player.getLocation());
+        Room spawnRoom = rooms.get(rnd.nextInt(rooms.size()));
+        if (spawnRoom == playerRoom && rooms.size() > 1) {
+            spawnRoom = rooms.get((rooms.indexOf(spawnRoom) + 1) % rooms.size());
+        }
+        float baseY = layout.yOf(floorIdx);
+
+        // 2) planner compartido de la planta
+        PatrolPlanner planner = planners[floorIdx];
+
+        // 3) guardia del pool (o uno nuevo) y su fuente de rutas, con el planner de la planta en la que esté
+        Enemy enemy = pool.isEmpty() ? new Enemy(am, space, player, world, stairs, audio) : pool.pop();
+        // fuera de una sala del grafo (en un pasillo o una escalera) la ruta sale de la sala más cercana de su planta
+        Supplier<List<Vector3f>> pathSupplier = () -> {
+            PatrolPlanner pl = planners[enemy.getFloor()];
+            Room r = enemy.currentRoom();
+            return pl.randomRoute(pl.getGraph().id(r) >= 0 ? r : pl.getNav().nearestRoom(enemy.getWorldTranslation()));
+        };
+
+        // cuelga del nodo de su planta para recibir los focos y balizas de esa planta
+        enemy.spawn(world.getFloorNode(floorIdx), floorIdx, spawnRoom, baseY, planner, pathSupplier);
+        enemy.setPatrolPoints(planner.randomRoute(spawnRoom));
 
-        // 1) planta y sala de aparición  ---------------------------
-        spawnFloorIdx = rnd.nextInt(layout.floors().size());
-        List<Room> rooms = layout.floors().get(spawnFloorIdx).rooms();
-        spawnRoom = rooms.get(rnd.nextInt(rooms.size()));
-        float baseY = layout.yOf(spawnFloorIdx);
+        active.add(enemy);
+        perFloor[floorIdx]++;
+    }
 
-        // 2) Planner para esa planta ------------------------------
-        planner = new PatrolPlanner(layout, spawnFloorIdx);
+    /**
+     * El guardia ha subido o bajado una escalera: pasa a la planta {@code f}. Los topes por planta solo limitan
+     * las apariciones, así que una persecución puede dejar una planta por encima del suyo.
+     */
+    private void moveToFloor(Enemy e, int f) {
+        perFloor[e.getFloor()]--;
+        perFloor[f]++;
+        e.changeFloor(f, world.getFloorNode(f), planners[f]);
+    }
 
-        // 3) LAMBDA que Enemy usará cuando necesite un camino nuevo
-        Supplier<List<Vector3f>> pathSupplier = () -> planner.randomRoute(enemy != null && enemy.currentRoom() != null ? enemy.currentRoom() : spawnRoom);
+    private void despawn(int index) {
+        Enemy e = active.get(index);
+        active.set(index, active.get(active.size() - 1));
+        active.remove(active.size() - 1);
+        perFloor[e.getFloor()]--;
+        lostTime.remove(e);
+        e.despawn();
+        pool.push(e);
+    }
 
-        // 4) Crear el enemigo -------------------------------------
-        enemy = new Enemy(am, space, player, world, spawnRoom, baseY, rootNode, audio, pathSupplier);
+    /**
+     * Cambia los topes; si bajan, se retiran primero los guardias más lejanos al jugador. EnemyUpdateBench lo usa
+     * para medir el bucle con distintos números de guardias.
+     */
+    public void setCaps(int total, int perFloorCap) {
+        this.cap = Math.max(0, total);
+        this.capPerFloor = Math.max(0, perFloorCap);
+
+        Vector3f p = player.getLocation();
+        while (!active.isEmpty()) {
+            int worst = -1;
+            float worstD = -1f;
+            for (int i = 0; i < active.size(); i++) {
+                Enemy e = active.get(i);
+                boolean over = active.size() > cap || perFloor[e.getFloor()] > capPerFloor;
+                float d = e.getWorldTranslation().distanceSquared(p);
+                if (over && d > worstD) {
+                    worstD = d;
+                    worst = i;
+                }
+            }
+            if (worst < 0) break;
+            despawn(worst);
+        }
+    }
 
-        enemy.setPatrolPoints(planner.randomRoute(spawnRoom));
+    public int getActiveCount() {
+        return active.size();
+    }
 
-        Vector3f pos = spawnRoom.center3f(baseY + 0.5f);
-        enemy.setLocalTranslation(pos);
-        enemy.getControl(CharacterControl.class).setPhysicsLocation(pos);
+    private void logCost(long nanos, float tpf) {
+        if (!LOG.isLoggable(Level.FINE)) return;
+        statNanos += nanos;
+        statFrames++;
+        statTimer += tpf;
+        if (statTimer >= 5f) {
+            long avgMicros = statNanos / statFrames / 1_000;
+            int n = active.size(), full = lodCount[0], reduced = lodCount[1], coarse = lodCount[2];
+            LOG.fine(() -> n + " guardias (" + full + " completos, " + reduced + " reducidos, " + coarse + " gruesos): " + avgMicros + " µs/frame de actualización");
+            statNanos = 0;
+            statFrames = 0;
+            statTimer = 0f;
+        }
     }
 
     @Override
@@ -86,6 +239,7 @@ public class EnemySystem extends BaseAppState {
 
     @Override
     protected void cleanup(Application app) {
+        for (int i = active.size() - 1; i >= 0; i--) despawn(i);
     }
 
     @Override
@@ -1,79 +1,100 @@
 package museumhell.game.ai;
 
 import com.jme3.math.Vector3f;
-import museumhell.engine.world.levelgen.Connection;
+import museumhell.engine.world.levelgen.LevelLayout;
 import museumhell.engine.world.levelgen.MuseumLayout;
 import museumhell.engine.world.levelgen.Room;
-import museumhell.engine.world.levelgen.enums.Direction;
+import museumhell.game.ai.nav.NavGrid;
+import museumhell.game.ai.nav.RoomGraph;
+import museumhell.utils.GeoUtil.Rect;
 
 import java.util.*;
 
+/**
+ * Rutas de patrulla de una planta: un recorrido en profundidad aleatorio por el {@link RoomGraph} decide el orden
+ * de visita; para ir de una sala a la siguiente se encadenan los saltos de su tabla y cada salto entre salas
+ * vecinas es un camino de la {@link NavGrid} (cacheado por pareja).
+ * <p>
+ * Se construye en la carga; la rejilla y el grafo de cada planta son independientes, así que EnemySystem
+ * crea los planners de todas las plantas en paralelo.
+ */
 public class PatrolPlanner {
 
-    private record NavEdge(Room from, Room to, Vector3f preDoor, Vector3f postDoor) {
-    }
-
-    private final Map<Room, List<NavEdge>> graph = new HashMap<>();
     private final Random rng = new Random();
+    private final NavGrid nav;
+    private final RoomGraph graph;
+    private final int[] stack;
+    private final boolean[] visited;
+    private final int[] candidates;
+
+    public PatrolPlanner(MuseumLayout layout, int floorIdx, List<Rect> walls) {
+        LevelLayout level = layout.floors().get(floorIdx);
+        nav = new NavGrid(level, layout.yOf(floorIdx), walls, layout.stairs().holes().getOrDefault(floorIdx, List.of()));
+        graph = new RoomGraph(level, nav);
+        stack = new int[graph.size()];
+        visited = new boolean[graph.size()];
+        candidates = new int[graph.size()];
+    }
 
-
-    public PatrolPlanner(MuseumLayout layout, int floorIdx) {
-        float y = layout.yOf(floorIdx) + 0.5f;
-
-        for (Connection c : layout.floors().get(floorIdx).conns()) {
-            Room a = c.a();
-            Room b = c.b();
-            Vector3f doorCtr = doorCenter(a, b, c.dir(), y);
-
-            Vector3f toA = a.center3f(y).subtract(doorCtr).normalizeLocal().multLocal(0.6f);
-            Vector3f toB = b.center3f(y).subtract(doorCtr).normalizeLocal().multLocal(0.6f);
-
-            Vector3f preA = doorCtr.add(toA);
-            Vector3f preB = doorCtr.add(toB);
-
-            graph.computeIfAbsent(a, k -> new ArrayList<>()).add(new NavEdge(a, b, preA, preB));
-            graph.computeIfAbsent(b, k -> new ArrayList<>()).add(new NavEdge(b, a, preB, preA));
-        }
+    public NavGrid getNav() {
+        return nav;
     }
 
+    public RoomGraph getGraph() {
+        return graph;
+    }
 
     public List<Vector3f> randomRoute(Room start) {
         List<Vector3f> waypoints = new ArrayList<>();
-        Deque<Room> stack = new ArrayDeque<>();
-        Set<Room> visited = new HashSet<>();
-
-        stack.push(start);
-        visited.add(start);
-
-        while (!stack.isEmpty()) {
-            Room cur = stack.peek();
-            var candidates = graph.getOrDefault(cur, List.of()).stream().filter(e -> !visited.contains(e.to())).toList();
-            if (candidates.isEmpty()) {
-                stack.pop();
+        int s = graph.id(start);
+        if (s < 0) return waypoints;
+
+        Arrays.fill(visited, false);
+        int top = 0;
+        stack[top++] = s;
+        visited[s] = true;
+        int last = s;
+
+        while (top > 0) {
+            int cur = stack[top - 1];
+            int count = 0;
+            for (int e = graph.edgesFrom(cur); e < graph.edgesFrom(cur + 1); e++) {
+                int to = graph.edgeTarget(e);
+                if (!visited[to]) candidates[count++] = to;
+            }
+            if (count == 0) {
+                top--;
                 continue;
             }
 
-            NavEdge edge = candidates.get(rng.nextInt(candidates.size()));
+            int next = candidates[rng.nextInt(count)];
 
-            waypoints.add(edge.preDoor());
-            waypoints.add(edge.postDoor());
-            waypoints.add(edge.to().center3f(edge.preDoor().y));
+            // tras retroceder, el camino sale de la última sala visitada, no de la cima de la pila
+            appendLeg(last, next, waypoints);
 
-            visited.add(edge.to());
-            stack.push(edge.to());
+            visited[next] = true;
+            stack[top++] = next;
+            last = next;
         }
         return waypoints;
     }
 
-    private static Vector3f doorCenter(Room a, Room b, Direction dir, float y) {
-        float dxMid = (Math.max(a.x(), b.x()) + Math.min(a.x() + a.w(), b.x() + b.w())) * 0.5f;
-        float dzMid = (Math.max(a.z(), b.z()) + Math.min(a.z() + a.h(), b.z() + b.h())) * 0.5f;
-
-        return switch (dir) {
-            case NORTH -> new Vector3f(dxMid, y, a.z());
-            case SOUTH -> new Vector3f(dxMid, y, a.z() + a.h());
-            case EAST -> new Vector3f(a.x() + a.w(), y, dzMid);
-            case WEST -> new Vector3f(a.x(), y, dzMid);
-        };
+    /**
+     * Añade el camino de {@code from} a {@code to} saltando de vecina en vecina según la tabla del grafo.
+     */
+    private void appendLeg(int from, int to, List<Vector3f> out) {
+        int cur = from;
+        while (cur != to) {
+            int hop = graph.nextHop(cur, to);
+            if (hop < 0) return;
+
+            List<Vector3f> step = nav.roomPath(graph.room(cur), graph.room(hop));
+            if (step.isEmpty()) {
+                out.add(graph.room(hop).center3f(nav.waypointY()));
+            } else {
+                out.addAll(step.subList(out.isEmpty() ? 0 : 1, step.size()));
+            }
+            cur = hop;
+        }
     }
 }
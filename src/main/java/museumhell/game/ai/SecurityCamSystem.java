@@ -2,31 +2,35 @@ package museumhell.game.ai;
 
 import com.jme3.app.Application;
 import com.jme3.app.state.BaseAppState;
-import com.jme3.bullet.BulletAppState;
-import com.jme3.bullet.PhysicsSpace;
-import com.jme3.bullet.collision.PhysicsCollisionObject;
-import com.jme3.bullet.collision.PhysicsRayTestResult;
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
 import museumhell.engine.world.builders._6LightPlacer;
 import museumhell.game.ai.SecurityCamera.CameraData;
 import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.world.WorldBuilder;
 import museumhell.game.player.PlayerController;
 import museumhell.utils.media.AudioLoader;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Cámaras fijas: una cámara solo detecta al jugador dentro de su propia sala, así que cada frame se evalúan
+ * únicamente las cámaras de la sala del jugador (índice por sala, por identidad) en vez de recorrerlas todas.
+ * Ese filtro es más estricto que el {@link museumhell.engine.world.world.RoomPvs}, que por eso aquí no hace falta.
+ */
 public class SecurityCamSystem extends BaseAppState {
     private final _6LightPlacer lightPlacer;
     private final AudioLoader audio;
-    private PhysicsSpace space;
     private final SecurityCamera camSys;
     private final PlayerController player;
+    private final WorldBuilder world;
     private final Node root;
-    private final Map<Room, Boolean> prevDetected = new HashMap<>();
+    private final Map<Room, List<CameraData>> roomCams = new IdentityHashMap<>();  // la primera da planta y altura de la baliza
+    private Room detectedRoom = null;     // sala cuya cámara ve al jugador (a lo sumo una: la suya)
     private boolean alarmInProgress = false;
     private Room alarmRoom = null;
     private int toggleCount = 0;
@@ -35,9 +39,10 @@ public class SecurityCamSystem extends BaseAppState {
     private final float maxDist = 20f;
     private final float halfFov = FastMath.DEG_TO_RAD * 30;
 
-    public SecurityCamSystem(SecurityCamera camSys, PlayerController player, Node root, _6LightPlacer lightPlacer, AudioLoader audioLoader) {
+    public SecurityCamSystem(SecurityCamera camSys, PlayerController player, WorldBuilder world, Node root, _6LightPlacer lightPlacer, AudioLoader audioLoader) {
         this.camSys = camSys;
         this.player = player;
+        this.world = world;
         this.root = root;
         this.lightPlacer = lightPlacer;
         this.audio = audioLoader;
@@ -45,13 +50,16 @@ public class SecurityCamSystem extends BaseAppState {
 
     @Override
     protected void initialize(Application app) {
-        BulletAppState bullet = getStateManager().getState(BulletAppState.class);
-        space = bullet.getPhysicsSpace();
         for (CameraData info : camSys.getCameraData()) {
-            prevDetected.put(info.room(), false);
+            roomCams.computeIfAbsent(info.room(), k -> new ArrayList<>()).add(info);
         }
     }
 
+    private void setBeacon(Room room, boolean on) {
+        CameraData info = roomCams.get(room).get(0);
+        lightPlacer.setRoomBeacon(room, info.floor(), info.baseY(), info.floorH(), on);
+    }
+
     @Override
     public void update(float tpf) {
         if (alarmInProgress) {
@@ -60,68 +68,57 @@ public class SecurityCamSystem extends BaseAppState {
                 blinkTimer -= BLINK_INTERVAL;
                 toggleCount++;
                 boolean newState = toggleCount % 2 == 1;
-                lightPlacer.setRoomBeacon(alarmRoom, newState);
+                setBeacon(alarmRoom, newState);
                 if (toggleCount >= 6) {
                     alarmInProgress = false;
-                    lightPlacer.setRoomBeacon(alarmRoom, false);
+                    // tras el parpadeo la baliza queda fija mientras la cámara siga viendo al jugador
+                    setBeacon(alarmRoom, alarmRoom == detectedRoom);
                 }
             }
             return;
         }
         Vector3f pPos = player.getLocation();
-        Map<Room, Boolean> detected = new HashMap<>();
-        for (CameraData info : camSys.getCameraData()) {
-            detected.put(info.room(), false);
-        }
-        for (CameraData info : camSys.getCameraData()) {
-            Room room = info.room();
-            if (detected.get(room)) {
-                continue;
-            }
-            float baseY = info.baseY();
-            if (pPos.y < baseY || pPos.y > baseY + info.floorH()) {
-                continue;
-            }
-            if (pPos.x < room.x() || pPos.x > room.x() + room.w() || pPos.z < room.z() || pPos.z > room.z() + room.h()) {
-                continue;
-            }
-            Vector3f camPos = info.spat().getWorldTranslation();
-            Vector3f toPlayer = pPos.subtract(camPos);
-            float dist = toPlayer.length();
-            if (dist > maxDist) {
-                continue;
-            }
-            if (FastMath.acos(info.dir().dot(toPlayer.normalize())) > halfFov) {
-                continue;
-            }
-            List<PhysicsRayTestResult> results = space.rayTest(camPos, pPos);
-            float closestFrac = 1f;
-            PhysicsCollisionObject closestObj = null;
-            for (PhysicsRayTestResult r : results) {
-                if (r.getHitFraction() < closestFrac) {
-                    closestFrac = r.getHitFraction();
-                    closestObj = r.getCollisionObject();
+        Room here = world.whichRoom(pPos);
+        List<CameraData> cams = here == null ? null : roomCams.get(here);
+        Room now = null;
+        if (cams != null) {
+            for (CameraData info : cams) {
+                if (sees(info, pPos)) {
+                    now = here;
+                    break;
                 }
             }
-            if (closestObj != player.getCharacterControl()) {
-                continue;
-            }
-            detected.put(room, true);
         }
-        for (Map.Entry<Room, Boolean> entry : detected.entrySet()) {
-            Room room = entry.getKey();
-            boolean isNow = entry.getValue();
-            boolean wasBefore = prevDetected.getOrDefault(room, false);
-            lightPlacer.setRoomBeacon(room, isNow);
-            if (!wasBefore && isNow) {
-                alarmInProgress = true;
-                alarmRoom = room;
-                toggleCount = 0;
-                blinkTimer = 0f;
-                audio.play("alarm");
-            }
-            prevDetected.put(room, isNow);
+        if (now == detectedRoom) return;
+
+        // solo se toca la luz en los cambios de estado
+        if (detectedRoom != null) setBeacon(detectedRoom, false);
+        if (now != null) {
+            setBeacon(now, true);
+            alarmInProgress = true;
+            alarmRoom = now;
+            toggleCount = 0;
+            blinkTimer = 0f;
+            audio.play("alarm");
+        }
+        detectedRoom = now;
+    }
+
+    private boolean sees(CameraData info, Vector3f pPos) {
+        float baseY = info.baseY();
+        if (pPos.y < baseY || pPos.y > baseY + info.floorH()) {
+            return false;
+        }
+        Vector3f camPos = info.spat().getWorldTranslation();
+        Vector3f toPlayer = pPos.subtract(camPos);
+        float dist = toPlayer.length();
+        if (dist > maxDist) {
+            return false;
+        }
+        if (FastMath.acos(info.dir().dot(toPlayer.normalize())) > halfFov) {
+            return false;
         }
+        return world.hasLineOfSight(camPos, pPos);
     }
 
     @Override
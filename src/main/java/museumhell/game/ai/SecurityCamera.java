@@ -8,24 +8,28 @@ import museumhell.engine.world.levelgen.MuseumLayout;
 import museumhell.engine.world.levelgen.Room;
 
 import java.util.*;
+import java.util.function.IntFunction;
 
 import static museumhell.utils.ConstantManager.WALL_T;
 
 public class SecurityCamera {
     private static final float THIN_T = 0.33f;
-    private final Node root;
+    private final IntFunction<Node> floorRoot;
     private final Spatial cameraBase;
     private final float extrusion;
     private final Random rnd = new Random();
     private final List<CameraData> camInfos = new ArrayList<>();
 
-    public SecurityCamera(Node root, Spatial cameraBase, float extrusion) {
-        this.root = root;
+    /**
+     * @param floorRoot nodo de cada planta; la cámara cuelga del de su planta para recibir sus luces
+     */
+    public SecurityCamera(IntFunction<Node> floorRoot, Spatial cameraBase, float extrusion) {
+        this.floorRoot = floorRoot;
         this.cameraBase = cameraBase;
         this.extrusion = extrusion;
     }
 
-    public record CameraData(Spatial spat, Vector3f dir, Room room, float baseY, float floorH) {
+    public record CameraData(Spatial spat, Vector3f dir, Room room, int floor, float baseY, float floorH) {
     }
 
     public void build(MuseumLayout museum) {
@@ -52,11 +56,11 @@ public class SecurityCamera {
             Vector3f normalOut = dirToCenter.negate();
             float extra = (dirToCenter.x > 0 && dirToCenter.z > 0) ? 0.1f : 0f;
             Vector3f posExtruded = pos0.add(normalOut.mult(extrusion + extra));
-            Spatial cam = cameraBase.clone();
+            Spatial cam = cameraBase.clone(false);
             cam.setLocalTranslation(posExtruded);
             cam.setLocalRotation(new Quaternion().lookAt(dirToCenter, Vector3f.UNIT_Y));
-            root.attachChild(cam);
-            camInfos.add(new CameraData(cam, dirToCenter.negate(), r, baseY, floorH));
+            floorRoot.apply(floorIdx).attachChild(cam);
+            camInfos.add(new CameraData(cam, dirToCenter.negate(), r, floorIdx, baseY, floorH));
         }
     }
 
@@ -0,0 +1,435 @@
+package museumhell.game.ai.nav;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import museumhell.engine.world.levelgen.LevelLayout;
+import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.levelgen.RoomIndex;
+import museumhell.utils.GeoUtil.Rect;
+
+import java.util.*;
+
+import static museumhell.utils.ConstantManager.*;
+
+/**
+ * Rejilla de ocupación de una planta para los guardias, construida una vez a partir de las salas del layout y de
+ * las huellas de muro que deja WorldBuilder (no de la física).
+ * <p>
+ * Son sólidas las celdas de {@link museumhell.utils.ConstantManager#NAV_CELL} m fuera de las salas, bajo un muro o
+ * en un hueco de escalera. Una transformada de distancia euclídea exacta da el campo de holgura (metros hasta lo
+ * sólido) y son transitables las celdas con holgura de al menos {@code NAV_AGENT_RADIUS}. Los huecos de puerta
+ * cuentan como libres: las puertas son el único obstáculo dinámico.
+ * <p>
+ * Las consultas A* (8 vecinos, sin cortar esquinas) reutilizan los buffers de la rejilla: no es segura entre
+ * hilos y está pensada para el hilo de render. Los caminos entre centros de sala se cachean por pareja.
+ */
+public final class NavGrid {
+
+    private final float x0, z0, cell, y;
+    private final int nx, nz;
+    private final boolean[] walkable;
+    private final float[] clearance;            // metros hasta la celda sólida más cercana (cota inferior)
+    private final short[] roomOf;               // índice en rooms o -1
+    private final List<Room> rooms;
+    private final Map<Room, Integer> roomIds = new IdentityHashMap<>();
+    private final int[] anchor;                 // celda transitable representativa de cada sala (-1 si no hay)
+
+    private final Map<Long, List<Vector3f>> roomPaths = new HashMap<>();
+
+    // buffers de A*, reutilizados entre consultas
+    private final float[] g;
+    private final int[] parent;
+    private final int[] seen;                   // generación en la que la celda entró en la frontera
+    private final int[] closed;                 // generación en la que se cerró
+    private int generation;
+    private int[] heapCell = new int[256];
+    private float[] heapF = new float[256];
+    private int heapSize;
+    private int[] pathCells = new int[256];
+    private final ArrayDeque<Vector3f> spare = new ArrayDeque<>();     // waypoints devueltos por findPath
+
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DZ = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final float DIAG = FastMath.sqrt(2f);
+
+    public NavGrid(LevelLayout level, float baseY, List<Rect> walls, List<Rect> stairHoles) {
+        this.rooms = List.copyOf(level.rooms());
+        this.cell = NAV_CELL;
+        this.y = baseY + 0.5f;
+        for (int i = 0; i < rooms.size(); i++) roomIds.put(rooms.get(i), i);
+
+        // 1) límites de la planta
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (Room r : rooms) {
+            minX = Math.min(minX, r.x());
+            minZ = Math.min(minZ, r.z());
+            maxX = Math.max(maxX, r.x() + r.w());
+            maxZ = Math.max(maxZ, r.z() + r.h());
+        }
+        if (rooms.isEmpty()) minX = minZ = maxX = maxZ = 0;
+        // una celda de margen fuera de la planta: sólida, para que la transformada vea el borde del museo
+        x0 = minX - cell;
+        z0 = minZ - cell;
+        nx = (int) Math.ceil((maxX - minX) / cell) + 2;
+        nz = (int) Math.ceil((maxZ - minZ) / cell) + 2;
+
+        int n = nx * nz;
+        walkable = new boolean[n];
+        clearance = new float[n];
+        boolean[] solid = new boolean[n];
+        roomOf = new short[n];
+        g = new float[n];
+        parent = new int[n];
+        seen = new int[n];
+        closed = new int[n];
+
+        // 2) sala de cada celda; fuera de las salas todo es sólido
+        RoomIndex index = new RoomIndex(rooms);
+        for (int j = 0; j < nz; j++) {
+            for (int i = 0; i < nx; i++) {
+                Room r = index.locate(cx(i), cz(j));
+                int c = j * nx + i;
+                roomOf[c] = (short) (r == null ? -1 : roomIds.get(r));
+                solid[c] = r == null;
+            }
+        }
+
+        // 3) muros (con sus huecos de puerta y abertura ya recortados) y escaleras: sólida toda celda que toquen
+        for (Rect w : walls) cover(solid, w);
+        for (Rect h : stairHoles) cover(solid, h);
+
+        // 4) campo de holgura y celdas donde cabe el guardia
+        distanceField(solid);
+        for (int c = 0; c < n; c++) walkable[c] = clearance[c] >= NAV_AGENT_RADIUS;
+
+        // 5) celda de referencia por sala: la transitable más cercana a su centro
+        anchor = new int[rooms.size()];
+        for (int k = 0; k < rooms.size(); k++) {
+            anchor[k] = nearestWalkable(rooms.get(k).center3f(0), k);
+        }
+    }
+
+    private void cover(boolean[] grid, Rect r) {
+        int i0 = Math.max(0, (int) Math.floor((r.x1() - x0) / cell)), i1 = Math.min(nx - 1, (int) Math.ceil((r.x2() - x0) / cell) - 1);
+        int j0 = Math.max(0, (int) Math.floor((r.z1() - z0) / cell)), j1 = Math.min(nz - 1, (int) Math.ceil((r.z2() - z0) / cell) - 1);
+        for (int j = j0; j <= j1; j++) {
+            for (int i = i0; i <= i1; i++) {
+                grid[j * nx + i] = true;
+            }
+        }
+    }
+
+    /**
+     * Transformada de distancia euclídea exacta (Felzenszwalb–Huttenlocher: parábolas inferiores por filas y
+     * luego por columnas). Como las celdas sólidas cubren por completo muros y huecos, restar media diagonal a la
+     * distancia entre centros da una cota inferior de la distancia real desde el centro de la celda.
+     */
+    private void distanceField(boolean[] solid) {
+        float inf = (float) (nx * nx + nz * nz) + 1f;
+        int m = Math.max(nx, nz);
+        float[] f = new float[m], d = new float[m], zs = new float[m + 1];
+        int[] v = new int[m];
+        float[] d2 = new float[nx * nz];
+
+        for (int c = 0; c < d2.length; c++) d2[c] = solid[c] ? 0f : inf;
+        for (int j = 0; j < nz; j++) {
+            for (int i = 0; i < nx; i++) f[i] = d2[j * nx + i];
+            lowerEnvelope(f, nx, d, v, zs);
+            for (int i = 0; i < nx; i++) d2[j * nx + i] = d[i];
+        }
+        for (int i = 0; i < nx; i++) {
+            for (int j = 0; j < nz; j++) f[j] = d2[j * nx + i];
+            lowerEnvelope(f, nz, d, v, zs);
+            for (int j = 0; j < nz; j++) d2[j * nx + i] = d[j];
+        }
+
+        float halfDiag = cell * 0.7072f;
+        for (int c = 0; c < d2.length; c++) {
+            clearance[c] = Math.max(0f, FastMath.sqrt(d2[c]) * cell - halfDiag);
+        }
+    }
+
+    private static void lowerEnvelope(float[] f, int n, float[] d, int[] v, float[] zs) {
+        int k = 0;
+        v[0] = 0;
+        zs[0] = Float.NEGATIVE_INFINITY;
+        zs[1] = Float.POSITIVE_INFINITY;
+        for (int q = 1; q < n; q++) {
+            float s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2f * (q - v[k]));
+            while (s <= zs[k]) {
+                k--;
+                s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2f * (q - v[k]));
+            }
+            k++;
+            v[k] = q;
+            zs[k] = s;
+            zs[k + 1] = Float.POSITIVE_INFINITY;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (zs[k + 1] < q) k++;
+            float dq = q - v[k];
+            d[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    /**
+     * Celda transitable más cercana a {@code p}, buscando en anillos crecientes; si {@code room >= 0} solo
+     * acepta celdas de esa sala. -1 si no hay ninguna.
+     */
+    private int nearestWalkable(Vector3f p, int room) {
+        int ci = clampI((int) Math.floor((p.x - x0) / cell)), cj = clampJ((int) Math.floor((p.z - z0) / cell));
+        int maxR = Math.max(nx, nz);
+        for (int rad = 0; rad < maxR; rad++) {
+            int best = -1;
+            float bestD = Float.MAX_VALUE;
+            for (int j = cj - rad; j <= cj + rad; j++) {
+                if (j < 0 || j >= nz) continue;
+                for (int i = ci - rad; i <= ci + rad; i++) {
+                    if (i < 0 || i >= nx) continue;
+                    if (Math.max(Math.abs(i - ci), Math.abs(j - cj)) != rad) continue;  // solo el anillo
+                    int c = j * nx + i;
+                    if (!walkable[c] || (room >= 0 && roomOf[c] != room)) continue;
+                    float dx = cx(i) - p.x, dz = cz(j) - p.z;
+                    float d = dx * dx + dz * dz;
+                    if (d < bestD) {
+                        bestD = d;
+                        best = c;
+                    }
+                }
+            }
+            if (best >= 0) return best;
+        }
+        return -1;
+    }
+
+    /* ---------- consultas ---------- */
+
+    /**
+     * Camino de centro a centro entre dos salas de la planta, cacheado por pareja. La lista es compartida:
+     * no se debe modificar ni ella ni sus vectores. Vacía si no hay camino.
+     */
+    public List<Vector3f> roomPath(Room from, Room to) {
+        Integer a = roomIds.get(from), b = roomIds.get(to);
+        if (a == null || b == null || anchor[a] < 0 || anchor[b] < 0) return List.of();
+        long key = ((long) a << 32) | b;
+        List<Vector3f> cached = roomPaths.get(key);
+        if (cached != null) return cached;
+
+        List<Vector3f> out = new ArrayList<>();
+        search(anchor[a], anchor[b], out);
+        List<Vector3f> path = List.copyOf(out);
+        roomPaths.put(key, path);
+        return path;
+    }
+
+    /**
+     * A* entre dos puntos de la planta; deja los waypoints (ya suavizados) en {@code out}, que se vacía primero.
+     * Ignora la altura: {@code from} y {@code to} se proyectan a la celda transitable más cercana de esta planta,
+     * así que un destino en otra planta da el camino hasta el punto de esta que queda debajo o encima.
+     * <p>
+     * Los vectores que había en {@code out} vuelven a la rejilla y se reutilizan para los nuevos waypoints: son
+     * válidos hasta la siguiente llamada con la misma lista y no se deben guardar aparte. Devuelve {@code false}
+     * si no hay camino.
+     */
+    public boolean findPath(Vector3f from, Vector3f to, List<Vector3f> out) {
+        for (int k = 0; k < out.size(); k++) spare.push(out.get(k));
+        out.clear();
+        int s = nearestWalkable(from, -1), t = nearestWalkable(to, -1);
+        if (s < 0 || t < 0) return false;
+        return search(s, t, out);
+    }
+
+    /**
+     * Sala de la celda transitable más cercana a {@code p} en esta planta (ignora la altura); {@code null} si la
+     * rejilla no tiene ninguna.
+     */
+    public Room nearestRoom(Vector3f p) {
+        int c = nearestWalkable(p, -1);
+        return c < 0 || roomOf[c] < 0 ? null : rooms.get(roomOf[c]);
+    }
+
+    /**
+     * Altura de los waypoints que devuelve la rejilla (suelo de la planta + 0.5).
+     */
+    public float waypointY() {
+        return y;
+    }
+
+    /**
+     * Holgura en {@code (x, z)}: metros hasta el muro, escalera o borde del museo más cercano; 0 fuera de la rejilla.
+     */
+    public float clearance(float x, float z) {
+        int i = (int) Math.floor((x - x0) / cell), j = (int) Math.floor((z - z0) / cell);
+        return i >= 0 && j >= 0 && i < nx && j < nz ? clearance[j * nx + i] : 0f;
+    }
+
+    /**
+     * Distancia libre desde {@code origin} en la dirección {@code dir} (normalizada, en XZ) hasta {@code maxDist},
+     * avanzando por esferas sobre el campo de holgura: cada paso mide lo que marca el campo, así que un rayo por
+     * una sala abierta son un par de lecturas.
+     */
+    public float castClearance(Vector3f origin, Vector3f dir, float maxDist) {
+        float minStep = cell * 0.25f;
+        float margin = cell * 0.7072f;      // un punto cualquiera de la celda puede estar media diagonal más cerca
+        float t = 0f;
+        for (int it = 0; it < 64 && t < maxDist; it++) {
+            float d = clearance(origin.x + dir.x * t, origin.z + dir.z * t) - margin;
+            if (d < minStep) return t;
+            t += d;
+        }
+        return Math.min(t, maxDist);
+    }
+
+    public boolean isWalkable(float x, float z) {
+        int i = (int) Math.floor((x - x0) / cell), j = (int) Math.floor((z - z0) / cell);
+        return i >= 0 && j >= 0 && i < nx && j < nz && walkable[j * nx + i];
+    }
+
+    /* ---------- A* ---------- */
+    private boolean search(int start, int goal, List<Vector3f> out) {
+        // 1) nueva generación: las marcas de la anterior dejan de valer sin limpiar los arrays
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+        int gi = goal % nx, gj = goal / nx;
+        heapSize = 0;
+        g[start] = 0f;
+        parent[start] = -1;
+        seen[start] = generation;
+        push(start, heuristic(start % nx, start / nx, gi, gj));
+
+        // 2) expansión
+        boolean found = false;
+        while (heapSize > 0) {
+            int c = pop();
+            if (closed[c] == generation) continue;
+            closed[c] = generation;
+            if (c == goal) {
+                found = true;
+                break;
+            }
+            int ci = c % nx, cj = c / nx;
+            for (int k = 0; k < 8; k++) {
+                int i = ci + DX[k], j = cj + DZ[k];
+                if (i < 0 || j < 0 || i >= nx || j >= nz) continue;
+                int nb = j * nx + i;
+                if (!walkable[nb] || closed[nb] == generation) continue;
+                // diagonal solo si las dos ortogonales están libres
+                if (k >= 4 && (!walkable[cj * nx + i] || !walkable[j * nx + ci])) continue;
+
+                float cost = g[c] + (k >= 4 ? DIAG : 1f);
+                if (seen[nb] != generation || cost < g[nb]) {
+                    seen[nb] = generation;
+                    g[nb] = cost;
+                    parent[nb] = c;
+                    push(nb, cost + heuristic(i, j, gi, gj));
+                }
+            }
+        }
+        if (!found) return false;
+
+        // 3) reconstrucción al revés en el buffer de celdas
+        int len = 0;
+        for (int c = goal; c >= 0; c = parent[c]) {
+            if (len == pathCells.length) pathCells = Arrays.copyOf(pathCells, len * 2);
+            pathCells[len++] = c;
+        }
+
+        // 4) suavizado: de cada waypoint se salta al más lejano que se vea en línea recta
+        int cur = len - 1;
+        out.add(waypoint(pathCells[cur]));
+        while (cur > 0) {
+            int next = cur - 1;
+            while (next > 0 && clearLine(pathCells[cur], pathCells[next - 1])) next--;
+            out.add(waypoint(pathCells[next]));
+            cur = next;
+        }
+        return true;
+    }
+
+    private static float heuristic(int i, int j, int gi, int gj) {
+        int dx = Math.abs(i - gi), dz = Math.abs(j - gj);
+        return Math.max(dx, dz) + (DIAG - 1f) * Math.min(dx, dz);   // octil
+    }
+
+    /**
+     * Muestreo cada media celda entre dos centros; se usa solo para suavizar caminos.
+     */
+    private boolean clearLine(int a, int b) {
+        float ax = a % nx + 0.5f, az = a / nx + 0.5f;
+        float bx = b % nx + 0.5f, bz = b / nx + 0.5f;
+        float dx = bx - ax, dz = bz - az;
+        int steps = (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dz)) * 2f);
+        for (int s = 1; s < steps; s++) {
+            float t = (float) s / steps;
+            int i = (int) (ax + dx * t), j = (int) (az + dz * t);
+            if (!walkable[j * nx + i]) return false;
+        }
+        return true;
+    }
+
+    /* ---------- montículo binario mínimo sobre arrays ---------- */
+    private void push(int c, float f) {
+        if (heapSize == heapCell.length) {
+            heapCell = Arrays.copyOf(heapCell, heapSize * 2);
+            heapF = Arrays.copyOf(heapF, heapSize * 2);
+        }
+        int k = heapSize++;
+        while (k > 0) {
+            int p = (k - 1) >>> 1;
+            if (heapF[p] <= f) break;
+            heapCell[k] = heapCell[p];
+            heapF[k] = heapF[p];
+            k = p;
+        }
+        heapCell[k] = c;
+        heapF[k] = f;
+    }
+
+    private int pop() {
+        int top = heapCell[0];
+        int lastC = heapCell[--heapSize];
+        float lastF = heapF[heapSize];
+        int k = 0;
+        while (true) {
+            int l = 2 * k + 1;
+            if (l >= heapSize) break;
+            int m = (l + 1 < heapSize && heapF[l + 1] < heapF[l]) ? l + 1 : l;
+            if (heapF[m] >= lastF) break;
+            heapCell[k] = heapCell[m];
+            heapF[k] = heapF[m];
+            k = m;
+        }
+        heapCell[k] = lastC;
+        heapF[k] = lastF;
+        return top;
+    }
+
+    /* ---------- coordenadas ---------- */
+    private float cx(int i) {
+        return x0 + (i + 0.5f) * cell;
+    }
+
+    private float cz(int j) {
+        return z0 + (j + 0.5f) * cell;
+    }
+
+    /**
+     * Centro de la celda a la altura de los waypoints, en un vector devuelto por findPath si queda alguno.
+     */
+    private Vector3f waypoint(int c) {
+        Vector3f v = spare.poll();
+        return (v == null ? new Vector3f() : v).set(cx(c % nx), y, cz(c / nx));
+    }
+
+    private int clampI(int i) {
+        return Math.max(0, Math.min(nx - 1, i));
+    }
+
+    private int clampJ(int j) {
+        return Math.max(0, Math.min(nz - 1, j));
+    }
+}
@@ -0,0 +1,198 @@
+package museumhell.game.ai.nav;
+
+import com.jme3.math.FastMath;
+import museumhell.engine.world.levelgen.Connection;
+import museumhell.engine.world.levelgen.LevelLayout;
+import museumhell.engine.world.levelgen.Room;
+
+import java.util.*;
+
+/**
+ * Grafo de salas de una planta con la tabla completa de siguiente salto y distancias, calculada una vez al cargar.
+ * <p>
+ * Los nodos son las salas de {@code rooms()} (id = posición en la lista); los pasillos no son nodos: sus dos
+ * conexiones se funden en una arista cuyo paso es el centro del pasillo. El peso de una arista es centro → paso →
+ * centro. Con decenas o pocos cientos de salas por planta basta Floyd–Warshall sobre arrays primitivos;
+ * {@code nextEdge[from * n + to]} guarda la arista por la que salir, así que "qué puerta tomo para llegar a X"
+ * es una lectura sin búsqueda ni reservas.
+ * <p>
+ * Solo son aristas las conexiones cuyo paso es transitable en la {@link NavGrid}: WorldBuilder abre un único hueco
+ * por lado de sala, así que el layout tiene conexiones sin hueco en el muro, y con ellas la tabla mandaría al
+ * guardia contra la pared.
+ */
+public final class RoomGraph {
+
+    private final List<Room> rooms;
+    private final Map<Room, Integer> ids = new IdentityHashMap<>();
+    private final int n;
+
+    // aristas dirigidas en formato CSR: las de la sala i están en [adjStart[i], adjStart[i+1])
+    private final int[] adjStart;
+    private final int[] adjRoom;
+    private final float[] portalX, portalZ;
+
+    private final short[] nextEdge;     // -1 si no hay camino (o from == to)
+    private final float[] dist;         // +inf si no hay camino
+
+    public RoomGraph(LevelLayout level, NavGrid nav) {
+        this.rooms = List.copyOf(level.rooms());
+        this.n = rooms.size();
+        for (int i = 0; i < n; i++) ids.put(rooms.get(i), i);
+
+        // 1) aristas no dirigidas, fundiendo los pasillos; fuera las que no tienen paso en la rejilla
+        List<float[]> edges = new ArrayList<>();          // {a, b, px, pz}
+        Map<Room, int[]> viaCorridor = new IdentityHashMap<>();
+        for (Connection c : level.conns()) {
+            Integer a = ids.get(c.a()), b = ids.get(c.b());
+            if (a != null && b != null) {
+                float[] p = portal(c.a(), c.b(), c);
+                if (nav.isWalkable(p[0], p[1])) edges.add(new float[]{a, b, p[0], p[1]});
+            } else {
+                Room corridor = a == null ? c.a() : c.b();
+                int end = a == null ? b : a;
+                int[] ends = viaCorridor.computeIfAbsent(corridor, k -> new int[]{-1, -1});
+                ends[ends[0] < 0 ? 0 : 1] = end;
+            }
+        }
+        for (var e : viaCorridor.entrySet()) {
+            int[] ends = e.getValue();
+            if (ends[0] < 0 || ends[1] < 0) continue;
+            Room corridor = e.getKey();
+            float px = corridor.x() + corridor.w() * 0.5f, pz = corridor.z() + corridor.h() * 0.5f;
+            if (nav.isWalkable(px, pz)) edges.add(new float[]{ends[0], ends[1], px, pz});
+        }
+
+        // 2) CSR con las dos direcciones de cada arista
+        adjStart = new int[n + 1];
+        for (float[] e : edges) {
+            adjStart[(int) e[0] + 1]++;
+            adjStart[(int) e[1] + 1]++;
+        }
+        for (int i = 0; i < n; i++) adjStart[i + 1] += adjStart[i];
+        int m = adjStart[n];
+        adjRoom = new int[m];
+        portalX = new float[m];
+        portalZ = new float[m];
+        int[] fill = Arrays.copyOf(adjStart, n);
+        for (float[] e : edges) {
+            int a = (int) e[0], b = (int) e[1];
+            put(fill[a]++, b, e[2], e[3]);
+            put(fill[b]++, a, e[2], e[3]);
+        }
+
+        // 3) Floyd–Warshall guardando la primera arista del camino
+        dist = new float[n * n];
+        nextEdge = new short[n * n];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        Arrays.fill(nextEdge, (short) -1);
+        for (int i = 0; i < n; i++) {
+            dist[i * n + i] = 0f;
+            for (int e = adjStart[i]; e < adjStart[i + 1]; e++) {
+                int j = adjRoom[e];
+                float w = leg(i, e) + leg(j, e);
+                if (w < dist[i * n + j]) {
+                    dist[i * n + j] = w;
+                    nextEdge[i * n + j] = (short) e;
+                }
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                float ik = dist[i * n + k];
+                if (ik == Float.POSITIVE_INFINITY) continue;
+                for (int j = 0; j < n; j++) {
+                    float d = ik + dist[k * n + j];
+                    if (d < dist[i * n + j]) {
+                        dist[i * n + j] = d;
+                        nextEdge[i * n + j] = nextEdge[i * n + k];
+                    }
+                }
+            }
+        }
+    }
+
+    private void put(int e, int to, float px, float pz) {
+        adjRoom[e] = to;
+        portalX[e] = px;
+        portalZ[e] = pz;
+    }
+
+    /**
+     * Distancia del centro de la sala {@code r} al paso de la arista {@code e}.
+     */
+    private float leg(int r, int e) {
+        Room room = rooms.get(r);
+        float dx = room.x() + room.w() * 0.5f - portalX[e], dz = room.z() + room.h() * 0.5f - portalZ[e];
+        return FastMath.sqrt(dx * dx + dz * dz);
+    }
+
+    /**
+     * Centro del hueco en el borde compartido, sobre la pared de {@code a} en la dirección de la conexión.
+     */
+    private static float[] portal(Room a, Room b, Connection c) {
+        float xMid = (Math.max(a.x(), b.x()) + Math.min(a.x() + a.w(), b.x() + b.w())) * 0.5f;
+        float zMid = (Math.max(a.z(), b.z()) + Math.min(a.z() + a.h(), b.z() + b.h())) * 0.5f;
+        return switch (c.dir()) {
+            case NORTH -> new float[]{xMid, a.z()};
+            case SOUTH -> new float[]{xMid, a.z() + a.h()};
+            case EAST -> new float[]{a.x() + a.w(), zMid};
+            case WEST -> new float[]{a.x(), zMid};
+        };
+    }
+
+    /* ---------- consultas ---------- */
+
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Id de la sala, o -1 si no es una sala de esta planta (p. ej. {@code null} o un pasillo).
+     */
+    public int id(Room r) {
+        Integer i = r == null ? null : ids.get(r);
+        return i == null ? -1 : i;
+    }
+
+    public Room room(int id) {
+        return rooms.get(id);
+    }
+
+    /**
+     * Arista por la que salir de {@code from} hacia {@code to}; -1 si son la misma sala o no hay camino.
+     */
+    public int nextEdge(int from, int to) {
+        return nextEdge[from * n + to];
+    }
+
+    /**
+     * Sala vecina por la que pasa el camino más corto de {@code from} a {@code to}; -1 si no hay.
+     */
+    public int nextHop(int from, int to) {
+        int e = nextEdge[from * n + to];
+        return e < 0 ? -1 : adjRoom[e];
+    }
+
+    public float distance(int from, int to) {
+        return dist[from * n + to];
+    }
+
+    public float portalX(int edge) {
+        return portalX[edge];
+    }
+
+    public float portalZ(int edge) {
+        return portalZ[edge];
+    }
+
+    /**
+     * Vecinas de la sala {@code id} como rango de aristas: {@code [edgesFrom(id), edgesFrom(id + 1))}.
+     */
+    public int edgesFrom(int id) {
+        return adjStart[id];
+    }
+
+    public int edgeTarget(int edge) {
+        return adjRoom[edge];
+    }
+}
@@ -0,0 +1,191 @@
+package museumhell.game.ai.nav;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import museumhell.engine.world.levelgen.MuseumLayout;
+import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.levelgen.RoomIndex;
+import museumhell.engine.world.levelgen.StairPlacement;
+import museumhell.engine.world.levelgen.enums.StairOrientation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static museumhell.utils.ConstantManager.*;
+
+/**
+ * Nivel superior de la navegación: une los {@link RoomGraph} de cada planta a través de las escaleras.
+ * <p>
+ * Cada {@link StairPlacement} aporta dos portales, el pie (planta {@code f}) y el rellano de llegada (planta
+ * {@code f + 1}), cada uno a {@code STAIR_APPROACH} m fuera del hueco y en la sala que lo contiene; una escalera
+ * con algún extremo al que la {@link NavGrid} no llega desde el centro de su sala (p. ej. pegada a dos muros) no
+ * se usa. Al cargar se calculan las distancias entre todos los portales (misma planta: tablas del RoomGraph;
+ * entre plantas: el tramo de escalera) con Floyd–Warshall, que con unos pocos portales por planta es inmediato.
+ * Elegir qué escalera tomar para llegar a otra planta es así un mínimo sobre portales de origen × portales de
+ * destino, sin buscar en el grafo aplanado de todas las salas.
+ * <p>
+ * El portal {@code 2s} es el pie de la escalera {@code s} y {@code 2s + 1} su rellano: {@link #partner} es el otro
+ * extremo del tramo.
+ */
+public final class StairGraph {
+    private static final float STAIR_APPROACH = NAV_AGENT_RADIUS + 0.5f;
+
+    private final RoomGraph[] graphs;
+    private final float floorH;
+
+    private final int p;                        // número de portales (dos por escalera)
+    private final Vector3f[] point;
+    private final int[] floor, room;            // room: id en el RoomGraph de su planta, -1 si cae fuera
+    private final float[] leg;                  // centro de su sala → portal
+    private final float[] dist;                 // [i * p + j], +inf si no hay camino
+    private final int[][] byFloor;              // portales válidos de cada planta
+
+    public StairGraph(MuseumLayout layout, RoomGraph[] graphs, NavGrid[] navs) {
+        this.graphs = graphs;
+        this.floorH = layout.floorHeight();
+        List<StairPlacement> stairs = layout.stairs().placements();
+        p = stairs.size() * 2;
+        point = new Vector3f[p];
+        floor = new int[p];
+        room = new int[p];
+        leg = new float[p];
+
+        // 1) portales: pie y rellano de cada tramo, fuera del hueco y a la altura de los waypoints
+        int steps = (int) Math.ceil(floorH / STEP_H);
+        float runD = steps * STEP_DEPTH;
+        float out = STEP_DEPTH * 0.5f + STAIR_CLEAR + STAIR_APPROACH;
+        RoomIndex[] index = new RoomIndex[graphs.length];
+        List<Vector3f> scratch = new ArrayList<>();
+        for (int s = 0; s < stairs.size(); s++) {
+            StairPlacement sp = stairs.get(s);
+            boolean ew = sp.orientation() == StairOrientation.EW;
+            float foot = (ew ? sp.z() : sp.x()) - out;
+            float top = (ew ? sp.z() : sp.x()) + runD + STAIR_CLEAR + STAIR_APPROACH;     // lado abierto del hueco
+            for (int end = 0; end < 2; end++) {
+                int i = 2 * s + end, f = sp.floor() + end;
+                float along = end == 0 ? foot : top;
+                float x = ew ? sp.x() : along, z = ew ? along : sp.z();
+                point[i] = new Vector3f(x, layout.yOf(f) + 0.5f, z);
+                floor[i] = f;
+                room[i] = -1;
+                if (f >= graphs.length) continue;
+                if (index[f] == null) index[f] = new RoomIndex(layout.floors().get(f).rooms());
+                Room r = index[f].locate(x, z);
+                if (r == null || !navs[f].findPath(r.center3f(point[i].y), point[i], scratch)) continue;
+                room[i] = graphs[f].id(r);
+                leg[i] = FastMath.sqrt(sq(r.x() + r.w() * 0.5f - x) + sq(r.z() + r.h() * 0.5f - z));
+            }
+            // un tramo solo sirve si se llega a sus dos extremos
+            if (room[2 * s] < 0 || room[2 * s + 1] < 0) room[2 * s] = room[2 * s + 1] = -1;
+        }
+
+        // 2) aristas: tramos de escalera y caminos dentro de cada planta
+        dist = new float[p * p];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        for (int i = 0; i < p; i++) {
+            if (!valid(i)) continue;
+            dist[i * p + i] = 0f;
+            int j = partner(i);
+            if (valid(j)) dist[i * p + j] = point[i].distance(point[j]);
+            for (int k = 0; k < p; k++) {
+                if (k == i || !valid(k) || floor[k] != floor[i]) continue;
+                dist[i * p + k] = room[k] == room[i]
+                        ? FastMath.sqrt(sq(point[k].x - point[i].x) + sq(point[k].z - point[i].z))
+                        : leg[i] + graphs[floor[i]].distance(room[i], room[k]) + leg[k];
+            }
+        }
+
+        // 3) Floyd–Warshall sobre los portales
+        for (int k = 0; k < p; k++) {
+            for (int i = 0; i < p; i++) {
+                float ik = dist[i * p + k];
+                if (ik == Float.POSITIVE_INFINITY) continue;
+                for (int j = 0; j < p; j++) {
+                    float d = ik + dist[k * p + j];
+                    if (d < dist[i * p + j]) dist[i * p + j] = d;
+                }
+            }
+        }
+
+        byFloor = new int[graphs.length][];
+        for (int f = 0; f < graphs.length; f++) {
+            List<Integer> list = new ArrayList<>();
+            for (int i = 0; i < p; i++) {
+                if (floor[i] == f && valid(i)) list.add(i);
+            }
+            byFloor[f] = list.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static float sq(float v) {
+        return v * v;
+    }
+
+    private boolean valid(int portal) {
+        return room[portal] >= 0;
+    }
+
+    /**
+     * Coste de ir del centro de la sala {@code id} de la planta del portal hasta el portal.
+     */
+    private float approach(int id, int portal) {
+        if (id == room[portal]) return leg[portal];
+        return graphs[floor[portal]].distance(id, room[portal]) + leg[portal];
+    }
+
+    /* ---------- consultas ---------- */
+
+    /**
+     * Portal de la planta {@code fromFloor} por el que empezar a subir o bajar para llegar a la sala {@code to}
+     * de {@code toFloor} por el camino más corto; -1 si son la misma planta, alguna sala no es de su planta o no
+     * hay escalera que lleve.
+     */
+    public int nextPortal(int fromFloor, Room from, int toFloor, Room to) {
+        if (fromFloor == toFloor || fromFloor < 0 || toFloor < 0 || fromFloor >= graphs.length || toFloor >= graphs.length) {
+            return -1;
+        }
+        int a = graphs[fromFloor].id(from), b = graphs[toFloor].id(to);
+        if (a < 0 || b < 0) return -1;
+
+        int best = -1;
+        float bestCost = Float.POSITIVE_INFINITY;
+        for (int e : byFloor[fromFloor]) {
+            float toE = approach(a, e);
+            if (toE == Float.POSITIVE_INFINITY) continue;
+            for (int x : byFloor[toFloor]) {
+                float cost = toE + dist[e * p + x] + approach(b, x);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = e;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Otro extremo del tramo de escalera del portal.
+     */
+    public int partner(int portal) {
+        return portal ^ 1;
+    }
+
+    /**
+     * Posición del portal (altura de waypoint de su planta). Compartida: no se debe modificar.
+     */
+    public Vector3f point(int portal) {
+        return point[portal];
+    }
+
+    public int portalCount() {
+        return p;
+    }
+
+    /**
+     * Planta que corresponde a la altura {@code y}.
+     */
+    public int floorAt(float y) {
+        return (int) Math.floor(y / floorH);
+    }
+}
@@ -5,13 +5,14 @@ import com.jme3.app.state.BaseAppState;
 import com.jme3.asset.AssetManager;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.math.Vector3f;
-import com.jme3.scene.Node;
 import museumhell.ui.Hud;
 import museumhell.game.player.PlayerController;
 import museumhell.engine.world.levelgen.Room;
+import museumhell.engine.world.world.WorldBuilder;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
@@ -22,19 +23,21 @@ import static museumhell.utils.ConstantManager.WALL_T;
 
 public class LootSystem extends BaseAppState {
     private final AssetManager am;
-    private final Node root;
+    private final WorldBuilder world;
     private final PhysicsSpace space;
     private final PlayerController player;
     private final Hud hud;
     private final float floorHeight;
 
     private final List<LootItem> items = new ArrayList<>();
-    private final Map<LootItem, Integer> itemFloor = new HashMap<>();
+    // ítems por sala (por identidad: salas iguales en plantas distintas son objetos distintos)
+    private final Map<Room, List<LootItem>> byRoom = new IdentityHashMap<>();
+    private final Map<LootItem, Room> itemRoom = new HashMap<>();
     private int collected = 0;
 
-    public LootSystem(AssetManager am, Node root, PhysicsSpace space, PlayerController player, Hud hud, float floorHeight) {
+    public LootSystem(AssetManager am, WorldBuilder world, PhysicsSpace space, PlayerController player, Hud hud, float floorHeight) {
         this.am = am;
-        this.root = root;
+        this.world = world;
         this.space = space;
         this.player = player;
         this.hud = hud;
@@ -69,9 +72,10 @@ public class LootSystem extends BaseAppState {
             }
 
             LootItem li = new LootItem(am, new Vector3f(x, y, z));
-            root.attachChild(li);
+            world.getFloorNode(floorIdx).attachChild(li);
             items.add(li);
-            itemFloor.put(li, floorIdx);
+            byRoom.computeIfAbsent(room, k -> new ArrayList<>()).add(li);
+            itemRoom.put(li, room);
         }
 
         hud.set(collected, items.size());
@@ -121,17 +125,21 @@ public class LootSystem extends BaseAppState {
     public void update(float tpf) {
     }
 
+    /**
+     * Ítems de la sala en la que está {@code pos}. El loot se reparte a más de {@code WALL_T} de las paredes,
+     * así que ninguno de otra sala puede quedar dentro del radio de recogida.
+     */
+    private List<LootItem> itemsAround(Vector3f pos) {
+        Room here = world.whichRoom(pos);
+        return here == null ? List.of() : byRoom.getOrDefault(here, List.of());
+    }
+
     public void tryPickUp(Vector3f playerPos) {
-        int currentFloor = (int) Math.floor(playerPos.y / floorHeight);
         final float MAX2 = 1.5f * 1.5f;
         LootItem target = null;
         float best = MAX2;
 
-        for (LootItem li : items) {
-            // ignoramos ítems de otras plantas
-            if (itemFloor.getOrDefault(li, -1) != currentFloor) {
-                continue;
-            }
+        for (LootItem li : itemsAround(playerPos)) {
             Vector3f w = li.getWorldTranslation();
             float dx = w.x - playerPos.x;
             float dz = w.z - playerPos.z;
@@ -143,9 +151,9 @@ public class LootSystem extends BaseAppState {
         }
 
         if (target != null) {
-            root.detachChild(target);
+            target.removeFromParent();
             items.remove(target);
-            itemFloor.remove(target);
+            byRoom.get(itemRoom.remove(target)).remove(target);
             collected++;
             hud.set(collected, collected + items.size());
         }
@@ -153,14 +161,9 @@ public class LootSystem extends BaseAppState {
 
 
     public LootItem nearestLoot(Vector3f pos, float maxDist) {
-        int currentFloor = (int) Math.floor(pos.y / floorHeight);
         LootItem best = null;
         float best2 = maxDist * maxDist;
-        for (LootItem li : items) {
-            // solo consideramos ítems de la misma planta
-            if (itemFloor.getOrDefault(li, -1) != currentFloor) {
-                continue;
-            }
+        for (LootItem li : itemsAround(pos)) {
             Vector3f w = li.getWorldTranslation();
             float dx = w.x - pos.x, dz = w.z - pos.z;
             float d2 = dx * dx + dz * dz;
@@ -0,0 +1,56 @@
+package museumhell.ui;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.math.ColorRGBA;
+
+/**
+ * Texto de progreso mientras el mundo se construye en segundo plano.
+ */
+public class LoadingScreen extends BaseAppState {
+    private BitmapText txt;
+    private volatile float progress = 0f;
+    private volatile String stage = "";
+
+    /**
+     * Se puede llamar desde cualquier hilo; el texto se refresca en update().
+     */
+    public void setProgress(float progress, String stage) {
+        this.progress = progress;
+        this.stage = stage;
+    }
+
+    @Override
+    protected void initialize(Application app) {
+        SimpleApplication sa = (SimpleApplication) app;
+        BitmapFont font = app.getAssetManager().loadFont("Interface/Fonts/Default.fnt");
+        txt = new BitmapText(font);
+        txt.setSize(26);
+        txt.setColor(ColorRGBA.White);
+        sa.getGuiNode().attachChild(txt);
+    }
+
+    @Override
+    public void update(float tpf) {
+        txt.setText(stage + "  " + Math.round(progress * 100f) + "%");
+        float x = (getApplication().getCamera().getWidth() - txt.getLineWidth()) * .5f;
+        float y = (getApplication().getCamera().getHeight() + txt.getLineHeight()) * .5f;
+        txt.setLocalTranslation(x, y, 0);
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+        txt.removeFromParent();
+    }
+
+    @Override
+    protected void onEnable() {
+    }
+
+    @Override
+    protected void onDisable() {
+    }
+}
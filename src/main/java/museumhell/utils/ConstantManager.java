@@ -59,6 +59,7 @@ public class ConstantManager {
     public static final float RAIL_H = 2.5f;
     public static final float RAIL_T = 0.2f;
     public static final float STAIR_CLEAR = 0.04f;
+    public static final float DOOR_GRID_CELL = 8f;
 
 
     // ITEMS
@@ -67,4 +68,38 @@ public class ConstantManager {
     public static final float INNER_ANGLE = FastMath.DEG_TO_RAD * 8;
     public static final float OUTER_ANGLE = FastMath.DEG_TO_RAD * 28f;
 
+
+    // LIGHT BUDGET
+    public static final int LIGHT_BUDGET = Integer.getInteger("museumhell.lightBudget", 32);
+    public static final float LIGHT_FADE_TIME = 0.4f;
+    public static final float LIGHT_RANK_PERIOD = 0.15f;
+    public static final float LIGHT_UNREACHABLE_PENALTY = 4f;
+    public static final float LIGHT_OTHER_FLOOR_PENALTY = 16f;
+    public static final int BEACON_POOL = 4;
+
+
+    // LIGHT BAKING
+    public static final float BAKE_CELL = 1f;
+    public static final float BAKE_ALBEDO = 0.35f;
+    public static final float BAKE_LIFT = 0.02f;
+
+
+    // NAVIGATION
+    public static final float NAV_CELL = 0.5f;
+    public static final float NAV_AGENT_RADIUS = 1f;
+    public static final float SIGHT_CELL = 0.5f;
+    public static final float PVS_RANGE = 20f;      // alcance máximo de detección (cámaras 20 m, guardias 15 m)
+
+
+    // ENEMIES
+    public static final int ENEMY_CAP = Integer.getInteger("museumhell.enemies", 6);
+    public static final int ENEMY_CAP_PER_FLOOR = Integer.getInteger("museumhell.enemiesPerFloor", 3);
+    public static final float ENEMY_SPAWN_INTERVAL = 5f;
+    public static final float ENEMY_LOST_TIMEOUT = 3f;
+    public static final float ENEMY_LOD_NEAR = 25f;          // a menos, y en la planta del jugador, cada frame
+    public static final float ENEMY_LOD_MARGIN = 3f;         // histéresis para no alternar de nivel en el borde
+    public static final float ENEMY_LOD_REDUCED_TICK = 0.1f; // misma planta, lejos
+    public static final float ENEMY_LOD_COARSE_TICK = 1f;    // otra planta: sin física, avance por la ruta
+    public static final float ENEMY_PURSUIT_TIME = 8f;       // persecución a otra planta sin ver al jugador
+
 }
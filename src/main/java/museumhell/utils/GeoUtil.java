@@ -1,11 +1,22 @@
 package museumhell.utils;
 
-import com.jme3.asset.AssetManager;
-import com.jme3.material.Material;
-import com.jme3.math.ColorRGBA;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.bullet.util.CollisionShapeFactory;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.shape.Box;
+import com.jme3.util.BufferUtils;
 import museumhell.engine.world.levelgen.enums.Direction;
 
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 
 public final class GeoUtil {
 
@@ -35,23 +46,131 @@ public final class GeoUtil {
     }
 
 
-    public static Material makeMat(AssetManager am) {
-        Material m = new Material(am, "Common/MatDefs/Light/Lighting.j3md");
-        m.setBoolean("UseMaterialColors", true);
-        m.setColor("Diffuse", ColorRGBA.Brown);
-        m.setColor("Ambient", ColorRGBA.Brown.mult(0.35f));
-        return m;
+    /**
+     * Diferencia {@code area − holes} como lista de rectángulos disjuntos que cubren exactamente lo que queda.
+     * Se comprimen las coordenadas de los huecos en una rejilla de celdas y se fusionan celdas de forma voraz
+     * (primero a lo largo de una fila, luego hacia abajo mientras la franja siga libre); se prueba por filas
+     * y por columnas y se queda la que dé menos piezas de las dos. Es una heurística, no la partición mínima:
+     * con los huecos de escalera de los museos generados da las mismas piezas que partir la sala hueco a hueco,
+     * y solo ahorra cuando una sala tiene muchos huecos (PatchBench en src/jmh). Sin huecos que toquen el área
+     * devuelve el área.
+     */
+    public static List<Rect> subtract(Rect area, List<Rect> holes) {
+        List<Rect> clipped = new ArrayList<>();
+        for (Rect h : holes) {
+            if (!intersects(area, h)) continue;
+            clipped.add(new Rect(Math.max(h.x1(), area.x1()), Math.min(h.x2(), area.x2()), Math.max(h.z1(), area.z1()), Math.min(h.z2(), area.z2())));
+        }
+        if (clipped.isEmpty()) return List.of(area);
+
+        // 1) rejilla comprimida: cortes en los bordes del área y de cada hueco
+        TreeSet<Float> xCuts = new TreeSet<>(List.of(area.x1(), area.x2()));
+        TreeSet<Float> zCuts = new TreeSet<>(List.of(area.z1(), area.z2()));
+        for (Rect h : clipped) {
+            xCuts.add(h.x1());
+            xCuts.add(h.x2());
+            zCuts.add(h.z1());
+            zCuts.add(h.z2());
+        }
+        float[] xs = toArray(xCuts), zs = toArray(zCuts);
+
+        // 2) celdas que hay que cubrir (las que no caen dentro de ningún hueco)
+        boolean[][] solid = new boolean[xs.length - 1][zs.length - 1];
+        for (int i = 0; i < xs.length - 1; i++) {
+            float cx = (xs[i] + xs[i + 1]) * .5f;
+            for (int j = 0; j < zs.length - 1; j++) {
+                float cz = (zs[j] + zs[j + 1]) * .5f;
+                boolean free = true;
+                for (Rect h : clipped) {
+                    if (cx > h.x1() && cx < h.x2() && cz > h.z1() && cz < h.z2()) {
+                        free = false;
+                        break;
+                    }
+                }
+                solid[i][j] = free;
+            }
+        }
+
+        // 3) fusión voraz en los dos sentidos
+        List<Rect> byRows = mergeCells(xs, zs, solid, false);
+        List<Rect> byCols = mergeCells(xs, zs, solid, true);
+        return byCols.size() < byRows.size() ? byCols : byRows;
+    }
+
+    private static List<Rect> mergeCells(float[] xs, float[] zs, boolean[][] solid, boolean alongZ) {
+        int nu = alongZ ? zs.length - 1 : xs.length - 1;   // eje que se extiende primero
+        int nv = alongZ ? xs.length - 1 : zs.length - 1;
+        boolean[][] left = new boolean[nu][nv];
+        for (int u = 0; u < nu; u++)
+            for (int v = 0; v < nv; v++)
+                left[u][v] = alongZ ? solid[v][u] : solid[u][v];
+
+        List<Rect> out = new ArrayList<>();
+        for (int v = 0; v < nv; v++) {
+            for (int u = 0; u < nu; u++) {
+                if (!left[u][v]) continue;
+                int u2 = u + 1;
+                while (u2 < nu && left[u2][v]) u2++;
+                int v2 = v + 1;
+                while (v2 < nv && rowFree(left, u, u2, v2)) v2++;
+                for (int a = u; a < u2; a++)
+                    for (int b = v; b < v2; b++)
+                        left[a][b] = false;
+                out.add(alongZ ? new Rect(xs[v], xs[v2], zs[u], zs[u2]) : new Rect(xs[u], xs[u2], zs[v], zs[v2]));
+            }
+        }
+        return out;
+    }
+
+    private static boolean rowFree(boolean[][] left, int u1, int u2, int v) {
+        for (int u = u1; u < u2; u++) if (!left[u][v]) return false;
+        return true;
+    }
+
+    private static float[] toArray(TreeSet<Float> set) {
+        float[] out = new float[set.size()];
+        int i = 0;
+        for (float f : set) out[i++] = f;
+        return out;
     }
 
-    public static Material makeRailMat(AssetManager am) {
-        Material m = new Material(am, "Common/MatDefs/Light/Lighting.j3md");
-        m.setBoolean("UseMaterialColors", true);
-        ColorRGBA c = new ColorRGBA(0.8f, 0.8f, 0.8f, 1f);
-        m.setColor("Diffuse", c);
-        m.setColor("Ambient", c.mult(0.35f));
-        return m;
+    /**
+     * Rellena el buffer de color de vértice con un gris uniforme {@code k}; con un material
+     * {@code UseVertexColor} multiplica su color base sin necesitar un material propio.
+     */
+    public static void tint(Mesh mesh, float k) {
+        FloatBuffer buf = BufferUtils.createFloatBuffer(mesh.getVertexCount() * 4);
+        for (int i = 0; i < mesh.getVertexCount(); i++) {
+            buf.put(k).put(k).put(k).put(1f);
+        }
+        buf.flip();
+        mesh.setBuffer(VertexBuffer.Type.Color, 4, buf);
     }
 
+    /**
+     * Cuerpo estático para una pieza del mundo. Todas las piezas (suelos, techos, muros, escalones, barandillas)
+     * son cajas alineadas con los ejes que el builder ya conoce ({@code center}, {@code halfExtents}); en modo
+     * BOX el cuerpo es esa caja, en un nodo "Collider" aparte del visual.
+     * <p>
+     * El modo MESH ({@code -Dmuseumhell.collision=mesh}) deja cada pieza como estaba: forma automática de
+     * RigidBodyControl para las Box de jME y malla triangular para los modelos.
+     */
+    public static void addStaticBody(Node root, Spatial visual, Vector3f center, Vector3f halfExtents) {
+        if (COLLISION_MODE == CollisionMode.MESH) {
+            boolean box = visual instanceof Geometry g && g.getMesh() instanceof Box;
+            visual.addControl(box ? new RigidBodyControl(0) : new RigidBodyControl(CollisionShapeFactory.createMeshShape(visual), 0));
+            return;
+        }
+        Node collider = new Node("Collider");
+        collider.setLocalTranslation(center);
+        collider.addControl(new RigidBodyControl(new BoxCollisionShape(halfExtents), 0));
+        root.attachChild(collider);
+    }
+
+    public enum CollisionMode {MESH, BOX}
+
+    public static final CollisionMode COLLISION_MODE = "mesh".equalsIgnoreCase(System.getProperty("museumhell.collision")) ? CollisionMode.MESH : CollisionMode.BOX;
+
     public record Rect(float x1,float x2,float z1,float z2){}
 
 }
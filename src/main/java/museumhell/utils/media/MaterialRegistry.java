@@ -0,0 +1,103 @@
+package museumhell.utils.media;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.ColorRGBA;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Materiales compartidos del mundo y los props: una única instancia por tipo y AssetManager.
+ * Las variaciones de tono por pieza no crean materiales nuevos; van en el buffer de color de vértice
+ * (ver {@code GeoUtil.tint}), por eso los materiales que las admiten llevan {@code UseVertexColor}.
+ * Es seguro usarlo desde el hilo de carga.
+ */
+public final class MaterialRegistry {
+    private static final Map<AssetManager, MaterialRegistry> BY_MANAGER = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final AssetManager am;
+    private final Map<String, Material> mats = new ConcurrentHashMap<>();
+
+    private MaterialRegistry(AssetManager am) {
+        this.am = am;
+    }
+
+    public static MaterialRegistry of(AssetManager am) {
+        return BY_MANAGER.computeIfAbsent(am, MaterialRegistry::new);
+    }
+
+    private Material shared(String key, Supplier<Material> factory) {
+        return mats.computeIfAbsent(key, k -> factory.get());
+    }
+
+    private Material lighting(ColorRGBA diffuse, ColorRGBA ambient) {
+        Material m = new Material(am, "Common/MatDefs/Light/Lighting.j3md");
+        m.setBoolean("UseMaterialColors", true);
+        m.setColor("Diffuse", diffuse);
+        m.setColor("Ambient", ambient);
+        return m;
+    }
+
+    /**
+     * Suelo; el tono de cada parche va en el color de vértice.
+     */
+    public Material floor() {
+        return shared("floor", () -> {
+            Material m = lighting(ColorRGBA.White, ColorRGBA.White);
+            m.setColor("Specular", ColorRGBA.White.mult(0.3f));
+            m.setFloat("Shininess", 1);
+            m.setBoolean("UseVertexColor", true);
+            return m;
+        });
+    }
+
+    /**
+     * Techo; el tono de cada parche va en el color de vértice.
+     */
+    public Material ceiling() {
+        return shared("ceiling", () -> {
+            Material m = lighting(ColorRGBA.Brown, ColorRGBA.Brown);
+            m.setColor("Specular", ColorRGBA.Brown.mult(0.1f));
+            m.setFloat("Shininess", 1f);
+            m.setBoolean("UseVertexColor", true);
+            return m;
+        });
+    }
+
+    public Material stairs() {
+        return shared("stairs", () -> lighting(ColorRGBA.Brown, ColorRGBA.Brown.mult(0.35f)));
+    }
+
+    public Material rail() {
+        return shared("rail", () -> {
+            ColorRGBA c = new ColorRGBA(0.8f, 0.8f, 0.8f, 1f);
+            return lighting(c, c.mult(0.35f));
+        });
+    }
+
+    public Material door() {
+        return shared("door", () -> lighting(ColorRGBA.White, ColorRGBA.Black.mult(0.25f)));
+    }
+
+    /**
+     * Luz horneada: el color de vértice se suma a lo que ya hay detrás, sin escribir profundidad.
+     */
+    public Material bakedLight() {
+        return shared("bakedLight", () -> {
+            Material m = new Material(am, "Common/MatDefs/Misc/Unshaded.j3md");
+            m.setBoolean("VertexColor", true);
+            m.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Additive);
+            m.getAdditionalRenderState().setDepthWrite(false);
+            return m;
+        });
+    }
+
+    public Material loot() {
+        return shared("loot", () -> lighting(ColorRGBA.Orange, ColorRGBA.Orange.mult(0.4f)));
+    }
+}